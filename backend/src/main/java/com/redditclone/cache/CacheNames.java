@@ -0,0 +1,14 @@
+package com.redditclone.cache;
+
+public final class CacheNames {
+
+    public static final String POSTS = "posts";
+    public static final String FEEDS = "feeds";
+    public static final String SUBREDDITS = "subreddits";
+    public static final String SUBREDDITS_BY_NAME = "subredditsByName";
+    public static final String TOP_SUBREDDITS = "topSubreddits";
+    public static final String USERS_BY_USERNAME = "usersByUsername";
+
+    private CacheNames() {
+    }
+}
@@ -0,0 +1,145 @@
+package com.redditclone.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
+
+/**
+ * Read-through loading for hot cache entries. Concurrent misses for the same
+ * key on this node share one load, and an entry past its freshness window is
+ * still served while a single background refresh replaces it. The cache's own
+ * TTL stays the hard limit; freshness windows are shorter than it.
+ */
+@Slf4j
+@Component
+public class SingleFlightLoader {
+
+    /** Cached value with the time it was loaded, used for the freshness check. */
+    public record Stamped(Object value, long loadedAt) {
+    }
+
+    private final CacheManager cacheManager;
+    private final ThreadPoolTaskExecutor refreshExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<String, Duration> freshFor;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlightLoader(CacheManager cacheManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${cache.fresh-ms.posts}") long postsFreshMs,
+            @Value("${cache.fresh-ms.feeds}") long feedsFreshMs,
+            @Value("${cache.fresh-ms.top-subreddits}") long topSubredditsFreshMs,
+            @Value("${cache.refresh.pool-size}") int poolSize,
+            @Value("${cache.refresh.queue-capacity}") int queueCapacity) {
+        this.cacheManager = cacheManager;
+        // Its own small pool, so refreshes never queue behind search or @Async work
+        this.refreshExecutor = new ThreadPoolTaskExecutor();
+        this.refreshExecutor.setCorePoolSize(poolSize);
+        this.refreshExecutor.setMaxPoolSize(poolSize);
+        this.refreshExecutor.setQueueCapacity(queueCapacity);
+        this.refreshExecutor.setThreadNamePrefix("cache-refresh-");
+        // A skipped refresh just means the stale value is served a little longer
+        this.refreshExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        this.refreshExecutor.initialize();
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.freshFor = Map.of(
+                CacheNames.POSTS, Duration.ofMillis(postsFreshMs),
+                CacheNames.FEEDS, Duration.ofMillis(feedsFreshMs),
+                CacheNames.TOP_SUBREDDITS, Duration.ofMillis(topSubredditsFreshMs));
+    }
+
+    /**
+     * Returns the cached value for {@code key}, loading it on a miss. The loader
+     * must not depend on the current user: it may run on a background thread
+     * and its result is shared by every caller.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String cacheName, Object key, Supplier<T> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        Cache.ValueWrapper wrapper = cache.get(key);
+        // Anything that is not a Stamped entry (e.g. written before this loader) counts as a miss
+        if (wrapper != null && wrapper.get() instanceof Stamped cached) {
+            Duration fresh = freshFor.get(cacheName);
+            if (fresh != null && System.currentTimeMillis() - cached.loadedAt() > fresh.toMillis()) {
+                refreshInBackground(cache, key, loader);
+            }
+            return (T) cached.value();
+        }
+
+        String flightKey = cacheName + ":" + key;
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, mine);
+        if (existing != null) {
+            return (T) await(existing);
+        }
+        try {
+            T value = loader.get();
+            cache.put(key, new Stamped(value, System.currentTimeMillis()));
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(flightKey, mine);
+        }
+    }
+
+    private <T> void refreshInBackground(Cache cache, Object key, Supplier<T> loader) {
+        String flightKey = cache.getName() + ":" + key;
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(flightKey, mine) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    T value = readOnlyTransaction.execute(status -> loader.get());
+                    cache.put(key, new Stamped(value, System.currentTimeMillis()));
+                    mine.complete(value);
+                } catch (RuntimeException ex) {
+                    // The stale entry stays until its TTL; the next read retries
+                    log.debug("Background refresh of {} failed: {}", flightKey, ex.getMessage());
+                    mine.completeExceptionally(ex);
+                } finally {
+                    inFlight.remove(flightKey, mine);
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            inFlight.remove(flightKey, mine);
+            mine.cancel(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdown();
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.redditclone.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A Caffeine cache in front of a Redis cache. Reads try local heap first, then
+ * Redis (promoting the value locally), then the loader. Evictions clear both
+ * tiers here and are broadcast so other nodes drop their local copy.
+ *
+ * <p>Redis failures are logged and treated as a miss or a skipped write, so an
+ * outage degrades to local caching plus the loader instead of failing reads.
+ */
+@Slf4j
+public class TwoTierCache extends AbstractValueAdaptingCache {
+
+    interface InvalidationPublisher {
+        void publish(String cacheName, String key);
+    }
+
+    private final String name;
+    private final Cache<String, Object> local;
+    private final org.springframework.cache.Cache remote;
+    private final InvalidationPublisher publisher;
+
+    TwoTierCache(String name, Cache<String, Object> local, org.springframework.cache.Cache remote,
+            InvalidationPublisher publisher) {
+        super(false);
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    // Keys are compared as strings, the same way the Redis tier stores them
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = key.toString();
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            return value;
+        }
+        ValueWrapper wrapper;
+        try {
+            wrapper = remote.get(key);
+        } catch (RuntimeException ex) {
+            log.warn("Cache {} remote read failed for {}: {}", name, key, ex.getMessage());
+            return null;
+        }
+        if (wrapper == null || wrapper.get() == null) {
+            return null;
+        }
+        local.put(localKey, wrapper.get());
+        return wrapper.get();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        try {
+            remote.put(key, value);
+        } catch (RuntimeException ex) {
+            log.warn("Cache {} remote write failed for {}: {}", name, key, ex.getMessage());
+        }
+        local.put(key.toString(), value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.invalidate(key.toString());
+        try {
+            remote.evict(key);
+        } catch (RuntimeException ex) {
+            log.warn("Cache {} remote evict failed for {}: {}", name, key, ex.getMessage());
+        }
+        publisher.publish(name, key.toString());
+    }
+
+    @Override
+    public void clear() {
+        local.invalidateAll();
+        try {
+            remote.clear();
+        } catch (RuntimeException ex) {
+            log.warn("Cache {} remote clear failed: {}", name, ex.getMessage());
+        }
+        publisher.publish(name, null);
+    }
+
+    void evictLocal(String key) {
+        if (key == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.redditclone.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Builds {@link TwoTierCache}s over a {@link RedisCacheManager} and relays
+ * evictions between nodes over a Redis channel. Local entries are weighed by
+ * their serialized size and expire with the same TTL as their Redis entry.
+ * Puts and evictions made inside a transaction are applied after it commits.
+ */
+@Slf4j
+public class TwoTierCacheManager extends AbstractTransactionSupportingCacheManager {
+
+    public static final String INVALIDATION_CHANNEL = "cache:invalidate";
+
+    private static final String SEPARATOR = "|";
+    private static final String CLEAR = "*";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final RedisCacheManager remote;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisSerializer<Object> valueSerializer;
+    private final Map<String, Duration> ttls;
+    private final Duration defaultTtl;
+    private final long maxWeightBytes;
+
+    public TwoTierCacheManager(RedisCacheManager remote, StringRedisTemplate redisTemplate,
+            RedisSerializer<Object> valueSerializer, Map<String, Duration> ttls, Duration defaultTtl,
+            long maxWeightBytes) {
+        this.remote = remote;
+        this.redisTemplate = redisTemplate;
+        this.valueSerializer = valueSerializer;
+        this.ttls = ttls;
+        this.defaultTtl = defaultTtl;
+        this.maxWeightBytes = maxWeightBytes;
+        setTransactionAware(true);
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return ttls.keySet().stream().map(this::createCache).collect(Collectors.toList());
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        return createCache(name);
+    }
+
+    /** Handles a message from {@link #INVALIDATION_CHANNEL}; our own messages are ignored. */
+    public void onInvalidation(String message) {
+        String[] parts = message.split("\\" + SEPARATOR, 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        Cache cache = lookupCache(parts[1]);
+        if (cache instanceof TwoTierCache twoTier) {
+            twoTier.evictLocal(CLEAR.equals(parts[2]) ? null : parts[2]);
+        }
+    }
+
+    private TwoTierCache createCache(String name) {
+        Duration ttl = ttls.getOrDefault(name, defaultTtl);
+        com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String key, Object value) -> weigh(key, value))
+                .expireAfterWrite(ttl)
+                .build();
+        return new TwoTierCache(name, local, remote.getCache(name), this::publish);
+    }
+
+    private int weigh(String key, Object value) {
+        try {
+            byte[] bytes = valueSerializer.serialize(value);
+            return key.length() + (bytes != null ? bytes.length : 0);
+        } catch (RuntimeException ex) {
+            return key.length() + 1024;
+        }
+    }
+
+    private void publish(String cacheName, String key) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL,
+                    String.join(SEPARATOR, List.of(nodeId, cacheName, key != null ? key : CLEAR)));
+        } catch (RuntimeException ex) {
+            // Other nodes fall back to their local TTL
+            log.warn("Could not publish cache invalidation for {}: {}", cacheName, ex.getMessage());
+        }
+    }
+}
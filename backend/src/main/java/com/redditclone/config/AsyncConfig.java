@@ -0,0 +1,55 @@
+package com.redditclone.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig implements AsyncConfigurer {
+
+    @Value("${async.executor.pool-size}")
+    private int poolSize;
+
+    @Value("${async.executor.queue-capacity}")
+    private int queueCapacity;
+
+    // @Async work (index rebuilds) gets its own pool so it never competes with search requests
+    @Bean
+    public ThreadPoolTaskExecutor taskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("async-");
+        // Callers are after-commit listeners; running the task inline beats throwing into them
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * Search index updates for the same document must apply in commit order, or
+     * an update queued behind a delete could bring the document back. One thread
+     * keeps them in submission order; the queue is unbounded so none of them is
+     * ever run out of turn on the caller.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor searchIndexExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("search-index-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return taskExecutor();
+    }
+}
@@ -1,5 +1,8 @@
 package com.redditclone.config;
 
+import com.redditclone.cache.CacheNames;
+import com.redditclone.cache.TwoTierCacheManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,11 +10,17 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Configuration
 @EnableCaching
@@ -30,17 +39,50 @@ public class RedisConfig {
     }
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public TwoTierCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+            StringRedisTemplate stringRedisTemplate,
+            @Value("${cache.default-ttl-ms}") long defaultTtlMs,
+            @Value("${cache.post-ttl-ms}") long postTtlMs,
+            @Value("${cache.local.max-weight-bytes}") long maxWeightBytes) {
+        GenericJackson2JsonRedisSerializer valueSerializer = new GenericJackson2JsonRedisSerializer();
+        Duration defaultTtl = Duration.ofMillis(defaultTtlMs);
+        // Posts and feeds carry vote and comment counts, so they are held for less time
+        Map<String, Duration> ttls = Map.of(
+                CacheNames.POSTS, Duration.ofMillis(postTtlMs),
+                CacheNames.FEEDS, Duration.ofMillis(postTtlMs),
+                CacheNames.TOP_SUBREDDITS, defaultTtl,
+                CacheNames.SUBREDDITS, defaultTtl,
+                CacheNames.SUBREDDITS_BY_NAME, defaultTtl,
+                CacheNames.USERS_BY_USERNAME, defaultTtl);
+
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(10))
+                .entryTtl(defaultTtl)
                 .serializeKeysWith(
                         RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
                 .serializeValuesWith(RedisSerializationContext.SerializationPair
-                        .fromSerializer(new GenericJackson2JsonRedisSerializer()))
+                        .fromSerializer(valueSerializer))
                 .disableCachingNullValues();
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager remote = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
+                .withInitialCacheConfigurations(ttls.entrySet().stream()
+                        .collect(Collectors.toMap(Map.Entry::getKey, e -> config.entryTtl(e.getValue()))))
                 .build();
+        remote.initializeCaches();
+
+        return new TwoTierCacheManager(remote, stringRedisTemplate, valueSerializer, ttls, defaultTtl,
+                maxWeightBytes);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory connectionFactory,
+            TwoTierCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> cacheManager.onInvalidation(
+                        new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(TwoTierCacheManager.INVALIDATION_CHANNEL));
+        return container;
     }
 }
@@ -0,0 +1,34 @@
+package com.redditclone.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.task.DelegatingSecurityContextAsyncTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class SearchConfig {
+
+    @Value("${search.executor.pool-size}")
+    private int poolSize;
+
+    @Value("${search.executor.queue-capacity}")
+    private int queueCapacity;
+
+    // Only SearchFanOut uses this pool, by qualifier; @Async runs on AsyncConfig's executor
+    @Bean
+    public AsyncTaskExecutor searchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("search-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        // Sources may depend on the caller's authentication (e.g. per-user vote flags)
+        return new DelegatingSecurityContextAsyncTaskExecutor(executor);
+    }
+}
@@ -1,5 +1,6 @@
 package com.redditclone.config;
 
+import com.redditclone.security.BoundedPasswordEncoder;
 import com.redditclone.security.JwtAuthenticationFilter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,7 +15,6 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -79,8 +79,13 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    // BCrypt runs on its own bounded pool; raising the strength rehashes users on their next login
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${auth.password.bcrypt-strength}") int strength,
+            @Value("${auth.password.hashing-threads}") int threads,
+            @Value("${auth.password.queue-capacity}") int queueCapacity,
+            @Value("${auth.password.timeout-ms}") long timeoutMs) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), threads, queueCapacity, timeoutMs);
     }
 }
@@ -3,6 +3,7 @@ package com.redditclone.controller;
 import com.redditclone.dto.AuthDto;
 import com.redditclone.security.CurrentUser;
 import com.redditclone.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -18,13 +19,16 @@ public class AuthController {
     private final CurrentUser currentUser;
 
     @PostMapping("/register")
-    public ResponseEntity<AuthDto.AuthResponse> register(@Valid @RequestBody AuthDto.RegisterRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(authService.register(request));
+    public ResponseEntity<AuthDto.AuthResponse> register(@Valid @RequestBody AuthDto.RegisterRequest request,
+            HttpServletRequest httpRequest) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(authService.register(request, httpRequest.getRemoteAddr()));
     }
 
     @PostMapping("/login")
-    public ResponseEntity<AuthDto.AuthResponse> login(@Valid @RequestBody AuthDto.LoginRequest request) {
-        return ResponseEntity.ok(authService.login(request));
+    public ResponseEntity<AuthDto.AuthResponse> login(@Valid @RequestBody AuthDto.LoginRequest request,
+            HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(authService.login(request, httpRequest.getRemoteAddr()));
     }
 
     @PostMapping("/refresh")
@@ -56,6 +60,8 @@ public class AuthController {
                 .avatarUrl(user.getAvatarUrl())
                 .bannerUrl(user.getBannerUrl())
                 .karma(user.getKarma())
+                .postKarma(user.getPostKarma())
+                .commentKarma(user.getCommentKarma())
                 .createdAt(user.getCreatedAt() != null ? user.getCreatedAt().toString() : null)
                 .build());
     }
@@ -8,13 +8,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/posts/{postId}/comments")
 @RequiredArgsConstructor
 public class CommentController {
 
+    private static final int MAX_LIMIT = 500;
+    private static final int MAX_DEPTH = 20;
+
     private final CommentService commentService;
 
     @PostMapping
@@ -25,8 +26,23 @@ public class CommentController {
     }
 
     @GetMapping
-    public ResponseEntity<List<CommentDto.Response>> getByPost(@PathVariable Long postId) {
-        return ResponseEntity.ok(commentService.getByPostId(postId));
+    public ResponseEntity<CommentDto.ThreadResponse> getByPost(
+            @PathVariable Long postId,
+            @RequestParam(defaultValue = "new") String sort,
+            @RequestParam(defaultValue = "200") int limit,
+            @RequestParam(defaultValue = "10") int maxDepth) {
+        return ResponseEntity.ok(commentService.getThread(postId, sort, clampLimit(limit), clampDepth(maxDepth)));
+    }
+
+    @GetMapping("/more")
+    public ResponseEntity<CommentDto.ThreadResponse> getMore(
+            @PathVariable Long postId,
+            @RequestParam String token,
+            @RequestParam(defaultValue = "new") String sort,
+            @RequestParam(defaultValue = "200") int limit,
+            @RequestParam(defaultValue = "10") int maxDepth) {
+        return ResponseEntity.ok(commentService.getMoreComments(
+                postId, token, sort, clampLimit(limit), clampDepth(maxDepth)));
     }
 
     @PutMapping("/{commentId}")
@@ -44,4 +60,12 @@ public class CommentController {
         commentService.delete(commentId);
         return ResponseEntity.noContent().build();
     }
+
+    private int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    private int clampDepth(int maxDepth) {
+        return Math.max(1, Math.min(maxDepth, MAX_DEPTH));
+    }
 }
@@ -1,25 +1,32 @@
 package com.redditclone.controller;
 
 import com.redditclone.dto.PostDto;
+import com.redditclone.security.CurrentUser;
+import com.redditclone.service.FeedSnapshots;
 import com.redditclone.service.FileStorageService;
 import com.redditclone.service.PostService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/posts")
 @RequiredArgsConstructor
 public class PostController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final PostService postService;
     private final FileStorageService fileStorageService;
+    private final FeedSnapshots feedSnapshots;
+    private final CurrentUser currentUser;
 
     @PostMapping
     public ResponseEntity<PostDto.Response> create(@Valid @RequestBody PostDto.CreateRequest request) {
@@ -49,20 +56,30 @@ public class PostController {
     }
 
     @GetMapping
-    public ResponseEntity<Page<PostDto.Response>> getFeed(
+    public ResponseEntity<?> getFeed(
             @RequestParam(defaultValue = "hot") String sort,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
-        return ResponseEntity.ok(postService.getFeed(sort, PageRequest.of(page, size)));
+        int pageSize = clampPageSize(size);
+        Optional<FeedSnapshots.Snapshot> snapshot = anonymousSnapshot(null, sort, cursor, pageSize);
+        if (snapshot.isPresent()) {
+            return serve(snapshot.get());
+        }
+        return ResponseEntity.ok(postService.getFeed(sort, cursor, pageSize));
     }
 
     @GetMapping("/subreddit/{subredditId}")
-    public ResponseEntity<Page<PostDto.Response>> getBySubreddit(
+    public ResponseEntity<?> getBySubreddit(
             @PathVariable Long subredditId,
             @RequestParam(defaultValue = "hot") String sort,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
-        return ResponseEntity.ok(postService.getBySubreddit(subredditId, sort, PageRequest.of(page, size)));
+        int pageSize = clampPageSize(size);
+        Optional<FeedSnapshots.Snapshot> snapshot = anonymousSnapshot(subredditId, sort, cursor, pageSize);
+        if (snapshot.isPresent()) {
+            return serve(snapshot.get());
+        }
+        return ResponseEntity.ok(postService.getBySubreddit(subredditId, sort, cursor, pageSize));
     }
 
     @PutMapping("/{id}")
@@ -76,4 +93,25 @@ public class PostController {
         postService.delete(id);
         return ResponseEntity.noContent().build();
     }
+
+    // Logged-in viewers need their own vote flags, so only anonymous requests use snapshots
+    private Optional<FeedSnapshots.Snapshot> anonymousSnapshot(Long subredditId, String sort, String cursor, int size) {
+        if (currentUser.getUserId() != null) {
+            return Optional.empty();
+        }
+        return feedSnapshots.find(subredditId, sort, cursor, size);
+    }
+
+    // A matching If-None-Match is answered with 304 by Spring from the ETag
+    private ResponseEntity<byte[]> serve(FeedSnapshots.Snapshot snapshot) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(snapshot.etag())
+                .body(snapshot.body());
+    }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
 }
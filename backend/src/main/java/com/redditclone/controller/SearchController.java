@@ -1,45 +1,77 @@
 package com.redditclone.controller;
 
-import com.redditclone.dto.PostDto;
-import com.redditclone.dto.SubredditDto;
-import com.redditclone.service.PostService;
-import com.redditclone.service.SubredditService;
+import com.redditclone.dto.SearchDto;
+import com.redditclone.search.LuceneSearchIndex;
+import com.redditclone.search.SearchDocument;
+import com.redditclone.search.SearchFanOut;
+import com.redditclone.search.SearchIndexer;
+import com.redditclone.search.SuggestionIndex;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/search")
 @RequiredArgsConstructor
 public class SearchController {
 
-    private final PostService postService;
-    private final SubredditService subredditService;
+    private static final int MAX_PAGE_SIZE = 100;
+    // Deepest hit a page may reach; every page collects all hits before it
+    private static final int MAX_RESULT_WINDOW = 1000;
+
+    private final LuceneSearchIndex searchIndex;
+    private final SearchIndexer searchIndexer;
+    private final SearchFanOut searchFanOut;
+    private final SuggestionIndex suggestionIndex;
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> search(
             @RequestParam String q,
             @RequestParam(defaultValue = "all") String type,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String subreddit,
+            @RequestParam(required = false) String postType) {
 
-        Map<String, Object> results = new HashMap<>();
+        Map<String, Supplier<?>> sources = new LinkedHashMap<>();
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, Math.min(page, MAX_RESULT_WINDOW / pageSize - 1));
 
         if ("all".equals(type) || "posts".equals(type)) {
-            Page<PostDto.Response> posts = postService.search(q, PageRequest.of(page, size));
-            results.put("posts", posts);
+            sources.put("posts", () -> searchIndex.search(
+                    q, SearchDocument.Type.POST, subreddit, postType, pageNumber, pageSize));
         }
 
         if ("all".equals(type) || "communities".equals(type)) {
-            Page<SubredditDto.Response> subreddits = subredditService.search(q, PageRequest.of(page, size));
-            results.put("communities", subreddits);
+            sources.put("communities", () -> searchIndex.search(
+                    q, SearchDocument.Type.SUBREDDIT, null, null, pageNumber, pageSize));
+        }
+
+        if ("all".equals(type) || "comments".equals(type)) {
+            sources.put("comments", () -> searchIndex.search(
+                    q, SearchDocument.Type.COMMENT, subreddit, null, pageNumber, pageSize));
         }
 
-        return ResponseEntity.ok(results);
+        return ResponseEntity.ok(searchFanOut.execute(sources));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<SearchDto.Suggestions> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        int clamped = Math.max(1, Math.min(limit, SuggestionIndex.MAX_SUGGESTIONS));
+        return ResponseEntity.ok(suggestionIndex.suggest(q.trim(), clamped));
+    }
+
+    @PostMapping("/reindex")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> reindex() {
+        searchIndexer.rebuildAsync();
+        return ResponseEntity.accepted().build();
     }
 }
@@ -3,6 +3,7 @@ package com.redditclone.controller;
 import com.redditclone.dto.AuthDto;
 import com.redditclone.dto.CommentDto;
 import com.redditclone.dto.PostDto;
+import com.redditclone.service.AuthService;
 import com.redditclone.service.CommentService;
 import com.redditclone.service.PostService;
 import com.redditclone.service.UserService;
@@ -10,6 +11,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -20,6 +22,7 @@ public class UserController {
     private final UserService userService;
     private final PostService postService;
     private final CommentService commentService;
+    private final AuthService authService;
 
     @GetMapping("/{username}")
     public ResponseEntity<AuthDto.UserResponse> getUser(@PathVariable String username) {
@@ -51,4 +54,11 @@ public class UserController {
             @RequestParam Long userId) {
         return ResponseEntity.ok(userService.updateProfile(userId, displayName, bio));
     }
+
+    @PostMapping("/{userId}/disable")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> disableUser(@PathVariable Long userId) {
+        authService.disableAccount(userId);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -73,6 +73,8 @@ public class AuthDto {
         private String avatarUrl;
         private String bannerUrl;
         private Integer karma;
+        private Integer postKarma;
+        private Integer commentKarma;
         private String createdAt;
     }
 }
@@ -50,5 +50,20 @@ public class CommentDto {
 
         @Builder.Default
         private List<Response> children = new ArrayList<>();
+
+        private String continuationToken; // set when some replies were left out
+        private Integer hiddenReplyCount;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ThreadResponse {
+        @Builder.Default
+        private List<Response> comments = new ArrayList<>();
+
+        private String continuationToken;
+        private Integer hiddenCount;
     }
 }
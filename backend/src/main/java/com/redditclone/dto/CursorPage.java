@@ -0,0 +1,23 @@
+package com.redditclone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    @Builder.Default
+    private List<T> content = new ArrayList<>();
+
+    private String nextCursor; // null on the last page
+
+    private boolean hasNext;
+}
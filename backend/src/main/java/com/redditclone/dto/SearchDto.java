@@ -0,0 +1,84 @@
+package com.redditclone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SearchDto {
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hit {
+        private String type;
+        private Long id;
+        private String title;
+        private String name;
+        private String content;
+        private String description;
+        private String highlight; // best matching passage, matches wrapped in <b>
+        private String subredditName;
+        private Long subredditId;
+        private String postType;
+        private Long postId;
+        private String authorUsername;
+        private Integer voteCount;
+        private Integer commentCount;
+        private Integer memberCount;
+        private String createdAt;
+        private Float score;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetCount {
+        private String value;
+        private Integer count;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Results {
+        @Builder.Default
+        private List<Hit> hits = new ArrayList<>();
+
+        private long totalHits;
+        private int page;
+        private int size;
+
+        @Builder.Default
+        private Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Suggestion {
+        private String name;
+        private Long weight; // member count for communities, karma for users
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Suggestions {
+        @Builder.Default
+        private List<Suggestion> communities = new ArrayList<>();
+
+        @Builder.Default
+        private List<Suggestion> users = new ArrayList<>();
+    }
+}
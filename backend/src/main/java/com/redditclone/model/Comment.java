@@ -25,10 +25,15 @@ public class Comment {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
-    @Column(name = "vote_count", nullable = false)
+    @Column(name = "vote_count", nullable = false, updatable = false)
     @Builder.Default
     private Integer voteCount = 0;
 
+    // The up half of vote_count, so "best" can rank without reading the votes table
+    @Column(name = "upvote_count", nullable = false, updatable = false)
+    @Builder.Default
+    private Integer upvoteCount = 0;
+
     @Column(name = "is_deleted")
     @Builder.Default
     private Boolean isDeleted = false;
@@ -37,6 +42,10 @@ public class Comment {
     @Builder.Default
     private Integer depth = 0;
 
+    // Ancestor ids from the root down to this comment, e.g. "000000000012/000000000034/"
+    @Column(columnDefinition = "TEXT")
+    private String path;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "post_id", nullable = false)
     private Post post;
@@ -60,4 +69,26 @@ public class Comment {
     @UpdateTimestamp
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
+
+    private static final int PATH_SEGMENT_WIDTH = 12;
+
+    public static String childPath(String parentPath, Long id) {
+        String segment = String.format("%0" + PATH_SEGMENT_WIDTH + "d/", id);
+        return parentPath != null ? parentPath + segment : segment;
+    }
+
+    /** Length of the path of a comment at {@code depth}, which is also its ancestors' prefix in deeper paths. */
+    public static int pathLength(int depth) {
+        return (depth + 1) * (PATH_SEGMENT_WIDTH + 1);
+    }
+
+    /** Id of the comment a path ends in. */
+    public static Long idOf(String path) {
+        return Long.valueOf(path.substring(path.length() - PATH_SEGMENT_WIDTH - 1, path.length() - 1));
+    }
+
+    /** Exclusive upper bound of the path range covering a comment and all of its descendants. */
+    public static String subtreeUpperBound(String path) {
+        return path + "~";
+    }
 }
@@ -6,6 +6,7 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 @Entity
 @Table(name = "posts")
@@ -37,11 +38,17 @@ public class Post {
     @Builder.Default
     private PostType postType = PostType.TEXT;
 
-    @Column(name = "vote_count", nullable = false)
+    // Owned by VoteAggregator's relative updates; never written back from the entity
+    @Column(name = "vote_count", nullable = false, updatable = false)
     @Builder.Default
     private Integer voteCount = 0;
 
-    @Column(name = "comment_count", nullable = false)
+    @Column(name = "hot_score", nullable = false, updatable = false)
+    @Builder.Default
+    private Double hotScore = 0.0;
+
+    // Maintained by ShardedCounters
+    @Column(name = "comment_count", nullable = false, updatable = false)
     @Builder.Default
     private Integer commentCount = 0;
 
@@ -68,4 +75,30 @@ public class Post {
     @UpdateTimestamp
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
+
+    // 12.5 hours of age weigh as much as a tenfold increase in votes
+    private static final double HOT_SCORE_DECAY_SECONDS = 45000d;
+    private static final long HOT_SCORE_EPOCH = 1134028003L;
+
+    /**
+     * Reddit-style hot ranking: log-scaled vote score plus a creation time term,
+     * so newer posts outrank older ones with the same votes. Mirrored in
+     * V2__post_hot_score.sql for the backfill.
+     */
+    public static double computeHotScore(int voteCount, LocalDateTime createdAt) {
+        double order = Math.log10(Math.max(Math.abs(voteCount), 1));
+        int sign = Integer.signum(voteCount);
+        LocalDateTime created = createdAt != null ? createdAt : LocalDateTime.now();
+        long seconds = created.toEpochSecond(ZoneOffset.UTC) - HOT_SCORE_EPOCH;
+        return sign * order + seconds / HOT_SCORE_DECAY_SECONDS;
+    }
+
+    public void refreshHotScore() {
+        this.hotScore = computeHotScore(voteCount, createdAt);
+    }
+
+    @PrePersist
+    void initHotScore() {
+        refreshHotScore();
+    }
 }
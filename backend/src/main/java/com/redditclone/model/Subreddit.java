@@ -32,7 +32,8 @@ public class Subreddit {
     @Column(name = "icon_url", length = 500)
     private String iconUrl;
 
-    @Column(name = "member_count", nullable = false)
+    // Maintained by ShardedCounters
+    @Column(name = "member_count", nullable = false, updatable = false)
     @Builder.Default
     private Integer memberCount = 0;
 
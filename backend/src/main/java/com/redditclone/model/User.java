@@ -43,10 +43,19 @@ public class User {
     @Column(name = "banner_url", length = 500)
     private String bannerUrl;
 
-    @Column(nullable = false)
+    // Written only by KarmaLedger's batched relative updates
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Integer karma = 0;
 
+    @Column(name = "post_karma", nullable = false, updatable = false)
+    @Builder.Default
+    private Integer postKarma = 0;
+
+    @Column(name = "comment_karma", nullable = false, updatable = false)
+    @Builder.Default
+    private Integer commentKarma = 0;
+
     @Column(nullable = false)
     @Builder.Default
     private Boolean enabled = true;
@@ -4,9 +4,14 @@ import com.redditclone.model.Comment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
@@ -15,4 +20,81 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     Page<Comment> findByAuthorIdAndIsDeletedFalse(Long authorId, Pageable pageable);
 
     long countByPostId(Long postId);
+
+    @Query("SELECT c.id AS id, c.parent.id AS parentId, c.depth AS depth, c.voteCount AS voteCount, " +
+            "c.upvoteCount AS upvoteCount, c.createdAt AS createdAt FROM Comment c " +
+            "WHERE c.post.id = :postId AND c.depth <= :maxDepth")
+    List<CommentNode> findNodesByPostId(@Param("postId") Long postId, @Param("maxDepth") int maxDepth);
+
+    /** Comments below {@code depth}, counted under their ancestor at that depth (a path prefix). */
+    @Query(value = "SELECT SUBSTRING(path, 1, :prefixLength) AS prefix, COUNT(*) AS count FROM comments " +
+            "WHERE post_id = :postId AND depth > :depth GROUP BY 1", nativeQuery = true)
+    List<PathCount> countBelowDepthByPostId(@Param("postId") Long postId, @Param("depth") int depth,
+            @Param("prefixLength") int prefixLength);
+
+    @Query("SELECT c.id AS id, c.content AS content, c.voteCount AS voteCount, c.depth AS depth, " +
+            "c.isDeleted AS isDeleted, c.parent.id AS parentId, a.id AS authorId, " +
+            "a.username AS authorUsername, a.avatarUrl AS authorAvatarUrl, " +
+            "c.createdAt AS createdAt, c.updatedAt AS updatedAt " +
+            "FROM Comment c JOIN c.author a WHERE c.id IN :ids")
+    List<CommentView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT c.path FROM Comment c WHERE c.id = :id AND c.post.id = :postId")
+    Optional<String> findPathByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId);
+
+    @Query("SELECT c.id AS id, c.parent.id AS parentId, c.depth AS depth, c.voteCount AS voteCount, " +
+            "c.upvoteCount AS upvoteCount, c.createdAt AS createdAt FROM Comment c " +
+            "WHERE c.path >= :path AND c.path < :upperBound AND c.depth <= :maxDepth")
+    List<CommentNode> findNodesInSubtree(@Param("path") String path, @Param("upperBound") String upperBound,
+            @Param("maxDepth") int maxDepth);
+
+    @Query(value = "SELECT SUBSTRING(path, 1, :prefixLength) AS prefix, COUNT(*) AS count FROM comments " +
+            "WHERE path >= :path AND path < :upperBound AND depth > :depth GROUP BY 1", nativeQuery = true)
+    List<PathCount> countBelowDepthInSubtree(@Param("path") String path, @Param("upperBound") String upperBound,
+            @Param("depth") int depth, @Param("prefixLength") int prefixLength);
+
+    /** Just enough of a comment to lay out a thread without loading its content. */
+    interface CommentNode {
+        Long getId();
+
+        Long getParentId();
+
+        Integer getDepth();
+
+        Integer getVoteCount();
+
+        Integer getUpvoteCount();
+
+        LocalDateTime getCreatedAt();
+    }
+
+    interface PathCount {
+        String getPrefix();
+
+        Long getCount();
+    }
+
+    interface CommentView {
+        Long getId();
+
+        String getContent();
+
+        Integer getVoteCount();
+
+        Integer getDepth();
+
+        Boolean getIsDeleted();
+
+        Long getParentId();
+
+        Long getAuthorId();
+
+        String getAuthorUsername();
+
+        String getAuthorAvatarUrl();
+
+        LocalDateTime getCreatedAt();
+
+        LocalDateTime getUpdatedAt();
+    }
 }
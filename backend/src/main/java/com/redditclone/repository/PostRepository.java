@@ -3,11 +3,14 @@ package com.redditclone.repository;
 import com.redditclone.model.Post;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
 
@@ -17,29 +20,52 @@ public interface PostRepository extends JpaRepository<Post, Long> {
 
     Page<Post> findByIsDeletedFalse(Pageable pageable);
 
-    @Query("SELECT p FROM Post p WHERE p.isDeleted = false ORDER BY p.voteCount DESC, p.createdAt DESC")
-    Page<Post> findHotPosts(Pageable pageable);
+    @Query("SELECT p FROM Post p WHERE p.isDeleted = false ORDER BY p.hotScore DESC, p.id DESC")
+    Slice<Post> findHotPosts(Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.isDeleted = false AND (p.hotScore, p.id) < (:hotScore, :id) " +
+            "ORDER BY p.hotScore DESC, p.id DESC")
+    Slice<Post> findHotPostsAfter(@Param("hotScore") double hotScore, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.isDeleted = false ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findNewPosts(Pageable pageable);
 
-    @Query("SELECT p FROM Post p WHERE p.isDeleted = false ORDER BY p.createdAt DESC")
-    Page<Post> findNewPosts(Pageable pageable);
+    @Query("SELECT p FROM Post p WHERE p.isDeleted = false AND (p.createdAt, p.id) < (:createdAt, :id) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findNewPostsAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+            Pageable pageable);
 
-    @Query("SELECT p FROM Post p WHERE p.isDeleted = false ORDER BY p.voteCount DESC")
-    Page<Post> findTopPosts(Pageable pageable);
+    @Query("SELECT p FROM Post p WHERE p.isDeleted = false ORDER BY p.voteCount DESC, p.id DESC")
+    Slice<Post> findTopPosts(Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.isDeleted = false AND (p.voteCount, p.id) < (:voteCount, :id) " +
+            "ORDER BY p.voteCount DESC, p.id DESC")
+    Slice<Post> findTopPostsAfter(@Param("voteCount") int voteCount, @Param("id") Long id, Pageable pageable);
 
     @Query("SELECT p FROM Post p WHERE p.subreddit.id = :subredditId AND p.isDeleted = false " +
-            "ORDER BY p.voteCount DESC, p.createdAt DESC")
-    Page<Post> findHotPostsBySubreddit(@Param("subredditId") Long subredditId, Pageable pageable);
+            "ORDER BY p.hotScore DESC, p.id DESC")
+    Slice<Post> findHotPostsBySubreddit(@Param("subredditId") Long subredditId, Pageable pageable);
 
     @Query("SELECT p FROM Post p WHERE p.subreddit.id = :subredditId AND p.isDeleted = false " +
-            "ORDER BY p.createdAt DESC")
-    Page<Post> findNewPostsBySubreddit(@Param("subredditId") Long subredditId, Pageable pageable);
+            "AND (p.hotScore, p.id) < (:hotScore, :id) ORDER BY p.hotScore DESC, p.id DESC")
+    Slice<Post> findHotPostsBySubredditAfter(@Param("subredditId") Long subredditId,
+            @Param("hotScore") double hotScore, @Param("id") Long id, Pageable pageable);
 
     @Query("SELECT p FROM Post p WHERE p.subreddit.id = :subredditId AND p.isDeleted = false " +
-            "ORDER BY p.voteCount DESC")
-    Page<Post> findTopPostsBySubreddit(@Param("subredditId") Long subredditId, Pageable pageable);
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findNewPostsBySubreddit(@Param("subredditId") Long subredditId, Pageable pageable);
 
-    @Query("SELECT p FROM Post p WHERE p.isDeleted = false AND " +
-            "(LOWER(p.title) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(p.content) LIKE LOWER(CONCAT('%', :query, '%')))")
-    Page<Post> searchPosts(@Param("query") String query, Pageable pageable);
+    @Query("SELECT p FROM Post p WHERE p.subreddit.id = :subredditId AND p.isDeleted = false " +
+            "AND (p.createdAt, p.id) < (:createdAt, :id) ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findNewPostsBySubredditAfter(@Param("subredditId") Long subredditId,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.subreddit.id = :subredditId AND p.isDeleted = false " +
+            "ORDER BY p.voteCount DESC, p.id DESC")
+    Slice<Post> findTopPostsBySubreddit(@Param("subredditId") Long subredditId, Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.subreddit.id = :subredditId AND p.isDeleted = false " +
+            "AND (p.voteCount, p.id) < (:voteCount, :id) ORDER BY p.voteCount DESC, p.id DESC")
+    Slice<Post> findTopPostsBySubredditAfter(@Param("subredditId") Long subredditId,
+            @Param("voteCount") int voteCount, @Param("id") Long id, Pageable pageable);
 }
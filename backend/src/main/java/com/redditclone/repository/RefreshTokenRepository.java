@@ -3,8 +3,12 @@ package com.redditclone.repository;
 import com.redditclone.model.RefreshToken;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +17,10 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long
 
     @Modifying
     void deleteByUserId(Long userId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN " +
+            "(SELECT id FROM refresh_tokens WHERE expiry_date < :now LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
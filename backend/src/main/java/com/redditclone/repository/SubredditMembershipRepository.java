@@ -2,6 +2,8 @@ package com.redditclone.repository;
 
 import com.redditclone.model.SubredditMembership;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,5 +19,11 @@ public interface SubredditMembershipRepository extends JpaRepository<SubredditMe
 
     Boolean existsByUserIdAndSubredditId(Long userId, Long subredditId);
 
-    void deleteByUserIdAndSubredditId(Long userId, Long subredditId);
+    long deleteByUserIdAndSubredditId(Long userId, Long subredditId);
+
+    @Query("SELECT m.subreddit.id FROM SubredditMembership m WHERE m.user.id = :userId")
+    List<Long> findSubredditIdsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT m FROM SubredditMembership m JOIN FETCH m.subreddit s JOIN FETCH s.creator WHERE m.user.id = :userId")
+    List<SubredditMembership> findWithSubredditByUserId(@Param("userId") Long userId);
 }
@@ -13,6 +13,13 @@ import java.util.Optional;
 
 @Repository
 public interface SubredditRepository extends JpaRepository<Subreddit, Long> {
+
+    interface NameWeight {
+        String getName();
+
+        Integer getWeight();
+    }
+
     Optional<Subreddit> findByName(String name);
 
     Boolean existsByName(String name);
@@ -20,7 +27,14 @@ public interface SubredditRepository extends JpaRepository<Subreddit, Long> {
     @Query("SELECT s FROM Subreddit s ORDER BY s.memberCount DESC")
     List<Subreddit> findTopByMemberCount(Pageable pageable);
 
-    @Query("SELECT s FROM Subreddit s WHERE LOWER(s.name) LIKE LOWER(CONCAT('%', :query, '%')) " +
-            "OR LOWER(s.description) LIKE LOWER(CONCAT('%', :query, '%'))")
-    Page<Subreddit> searchByNameOrDescription(@Param("query") String query, Pageable pageable);
+    @Query(value = "SELECT s.* FROM subreddits s, websearch_to_tsquery('english', :query) q " +
+            "WHERE s.search_vector @@ q " +
+            "ORDER BY ts_rank(s.search_vector, q) DESC, s.member_count DESC, s.id DESC",
+            countQuery = "SELECT COUNT(*) FROM subreddits s " +
+                    "WHERE s.search_vector @@ websearch_to_tsquery('english', :query)",
+            nativeQuery = true)
+    Page<Subreddit> searchFullText(@Param("query") String query, Pageable pageable);
+
+    @Query("SELECT s.name AS name, s.memberCount AS weight FROM Subreddit s")
+    List<NameWeight> findAllNameWeights();
 }
@@ -2,12 +2,21 @@ package com.redditclone.repository;
 
 import com.redditclone.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    interface NameWeight {
+        String getName();
+
+        Integer getWeight();
+    }
+
     Optional<User> findByUsername(String username);
 
     Optional<User> findByEmail(String email);
@@ -17,4 +26,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Boolean existsByUsername(String username);
 
     Boolean existsByEmail(String email);
+
+    @Query("SELECT u.username AS name, u.karma AS weight FROM User u WHERE u.enabled = true")
+    List<NameWeight> findAllNameWeights();
 }
@@ -2,13 +2,112 @@ package com.redditclone.repository;
 
 import com.redditclone.model.Vote;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Repository
 public interface VoteRepository extends JpaRepository<Vote, Long> {
     Optional<Vote> findByUserIdAndPostId(Long userId, Long postId);
 
     Optional<Vote> findByUserIdAndCommentId(Long userId, Long commentId);
+
+    @Query("SELECT p.author.id AS authorId, p.voteCount AS voteCount FROM Post p WHERE p.id = :postId")
+    Optional<VoteTarget> findPostTarget(@Param("postId") Long postId);
+
+    @Query("SELECT c.author.id AS authorId, c.voteCount AS voteCount FROM Comment c WHERE c.id = :commentId")
+    Optional<VoteTarget> findCommentTarget(@Param("commentId") Long commentId);
+
+    @Modifying
+    @Query(value = "DELETE FROM votes WHERE user_id = :userId AND post_id = :postId AND vote_type = :voteType",
+            nativeQuery = true)
+    int deletePostVote(@Param("userId") Long userId, @Param("postId") Long postId,
+            @Param("voteType") short voteType);
+
+    @Modifying
+    @Query(value = "DELETE FROM votes WHERE user_id = :userId AND comment_id = :commentId AND vote_type = :voteType",
+            nativeQuery = true)
+    int deleteCommentVote(@Param("userId") Long userId, @Param("commentId") Long commentId,
+            @Param("voteType") short voteType);
+
+    // Returns true for a new vote, false for a flipped one, and nothing if the same vote already exists
+    @Query(value = "INSERT INTO votes (user_id, post_id, vote_type) VALUES (:userId, :postId, :voteType) " +
+            "ON CONFLICT (user_id, post_id) DO UPDATE SET vote_type = EXCLUDED.vote_type " +
+            "WHERE votes.vote_type <> EXCLUDED.vote_type " +
+            "RETURNING (xmax = 0)", nativeQuery = true)
+    Optional<Boolean> upsertPostVote(@Param("userId") Long userId, @Param("postId") Long postId,
+            @Param("voteType") short voteType);
+
+    @Query(value = "INSERT INTO votes (user_id, comment_id, vote_type) VALUES (:userId, :commentId, :voteType) " +
+            "ON CONFLICT (user_id, comment_id) DO UPDATE SET vote_type = EXCLUDED.vote_type " +
+            "WHERE votes.vote_type <> EXCLUDED.vote_type " +
+            "RETURNING (xmax = 0)", nativeQuery = true)
+    Optional<Boolean> upsertCommentVote(@Param("userId") Long userId, @Param("commentId") Long commentId,
+            @Param("voteType") short voteType);
+
+    @Query("SELECT v.post.id AS targetId, v.voteType AS voteType FROM Vote v " +
+            "WHERE v.user.id = :userId AND v.post.id IN :postIds")
+    List<UserVote> findUserVotesOnPosts(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
+
+    @Query("SELECT v.comment.id AS targetId, v.voteType AS voteType FROM Vote v " +
+            "WHERE v.user.id = :userId AND v.comment.id IN :commentIds")
+    List<UserVote> findUserVotesOnComments(@Param("userId") Long userId,
+            @Param("commentIds") Collection<Long> commentIds);
+
+    /**
+     * Applies a +1/-1 vote as toggle-off, flip or new vote in at most two
+     * statements and returns the change in score it caused.
+     */
+    default int castPostVote(Long userId, Long postId, short voteType) {
+        if (deletePostVote(userId, postId, voteType) > 0) {
+            return -voteType;
+        }
+        return upsertPostVote(userId, postId, voteType)
+                .map(inserted -> inserted ? voteType : 2 * voteType)
+                .orElse(0);
+    }
+
+    default int castCommentVote(Long userId, Long commentId, short voteType) {
+        if (deleteCommentVote(userId, commentId, voteType) > 0) {
+            return -voteType;
+        }
+        return upsertCommentVote(userId, commentId, voteType)
+                .map(inserted -> inserted ? voteType : 2 * voteType)
+                .orElse(0);
+    }
+
+    default Map<Long, Short> findPostVoteTypes(Long userId, Collection<Long> postIds) {
+        if (userId == null || postIds.isEmpty()) {
+            return Map.of();
+        }
+        return findUserVotesOnPosts(userId, postIds).stream()
+                .collect(Collectors.toMap(UserVote::getTargetId, UserVote::getVoteType));
+    }
+
+    default Map<Long, Short> findCommentVoteTypes(Long userId, Collection<Long> commentIds) {
+        if (userId == null || commentIds.isEmpty()) {
+            return Map.of();
+        }
+        return findUserVotesOnComments(userId, commentIds).stream()
+                .collect(Collectors.toMap(UserVote::getTargetId, UserVote::getVoteType));
+    }
+
+    interface UserVote {
+        Long getTargetId();
+
+        Short getVoteType();
+    }
+
+    interface VoteTarget {
+        Long getAuthorId();
+
+        Integer getVoteCount();
+    }
 }
@@ -0,0 +1,368 @@
+package com.redditclone.search;
+
+import com.redditclone.dto.SearchDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.QueryTimeoutImpl;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk Lucene index of posts, comments and subreddits. Writes go through a
+ * single {@link IndexWriter}; readers see them after the next periodic refresh,
+ * and they are made durable by the periodic commit.
+ *
+ * <p>Every document is stamped with the generation it was written in. A full
+ * reindex starts a new generation, rewrites everything in place and then drops
+ * what it did not rewrite, so searches keep answering while it runs.
+ */
+@Component
+@Slf4j
+public class LuceneSearchIndex {
+
+    private static final String UID = "uid";
+    private static final String TYPE = "type";
+    private static final String ID = "id";
+    private static final String TITLE = "title";
+    private static final String CONTENT = "content";
+    private static final String SUBREDDIT = "subreddit";
+    private static final String SUBREDDIT_ID = "subredditId";
+    private static final String POST_TYPE = "postType";
+    private static final String POST_ID = "postId";
+    private static final String AUTHOR = "author";
+    private static final String VOTE_COUNT = "voteCount";
+    private static final String COMMENT_COUNT = "commentCount";
+    private static final String MEMBER_COUNT = "memberCount";
+    private static final String CREATED_AT = "createdAt";
+    private static final String GENERATION = "generation";
+
+    private static final Map<String, Float> FIELD_WEIGHTS = Map.of(TITLE, 2.0f, CONTENT, 1.0f);
+    private static final List<String> FACET_DIMENSIONS = List.of(SUBREDDIT, POST_TYPE);
+    private static final int FACET_LIMIT = 10;
+
+    @Value("${search.index-dir}")
+    private String indexDir;
+
+    @Value("${search.source-timeout-ms}")
+    private long timeoutMs;
+
+    private final Analyzer analyzer = new EnglishAnalyzer();
+    private final FacetsConfig facetsConfig = new FacetsConfig();
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile FacetState facetState;
+    private volatile long generation = System.currentTimeMillis();
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path path = Paths.get(indexDir);
+        Files.createDirectories(path);
+        directory = FSDirectory.open(path);
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+        log.info("Opened search index at {} ({} documents)", path.toAbsolutePath(), writer.getDocStats().numDocs);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.commit();
+        writer.close();
+        directory.close();
+    }
+
+    public boolean isEmpty() {
+        return writer.getDocStats().numDocs == 0;
+    }
+
+    public void index(SearchDocument document) {
+        try {
+            writer.updateDocument(uid(document.type(), document.id()), facetsConfig.build(toDocument(document)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public void delete(SearchDocument.Type type, Long id) {
+        try {
+            writer.deleteDocuments(uid(type, id));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /** Stamps documents written from now on with a new generation, and returns it. */
+    public synchronized long startGeneration() {
+        generation = Math.max(generation + 1, System.currentTimeMillis());
+        return generation;
+    }
+
+    /** Drops every document not written since {@code since} was started. */
+    public void deleteOlderThan(long since) {
+        Query stale = new BooleanQuery.Builder()
+                .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+                .add(LongPoint.newRangeQuery(GENERATION, since, Long.MAX_VALUE), BooleanClause.Occur.MUST_NOT)
+                .build();
+        try {
+            writer.deleteDocuments(stale);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.refresh-interval-ms}")
+    public void refresh() throws IOException {
+        searcherManager.maybeRefresh();
+    }
+
+    @Scheduled(fixedDelayString = "${search.commit-interval-ms}")
+    public void commit() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    /**
+     * Relevance-ranked search within one document type. The query supports
+     * quoted phrases, +/- and prefix* operators; matches in titles weigh double.
+     * Collection stops at the search deadline with whatever matched so far, so a
+     * slow query cannot keep holding a search thread after its caller gave up.
+     */
+    public SearchDto.Results search(String queryText, SearchDocument.Type type, String subreddit,
+            String postType, int page, int size) {
+        Query textQuery = new SimpleQueryParser(analyzer, FIELD_WEIGHTS).parse(queryText);
+        BooleanQuery.Builder builder = new BooleanQuery.Builder()
+                .add(textQuery, BooleanClause.Occur.MUST)
+                .add(new TermQuery(new Term(TYPE, type.name())), BooleanClause.Occur.FILTER);
+        if (subreddit != null) {
+            builder.add(new TermQuery(new Term(SUBREDDIT, subreddit)), BooleanClause.Occur.FILTER);
+        }
+        if (postType != null) {
+            builder.add(new TermQuery(new Term(POST_TYPE, postType)), BooleanClause.Occur.FILTER);
+        }
+        Query query = builder.build();
+
+        try {
+            IndexSearcher shared = searcherManager.acquire();
+            try {
+                // The deadline is per query, so it goes on a searcher of our own over the shared reader
+                IndexSearcher searcher = new IndexSearcher(shared.getIndexReader());
+                searcher.setTimeout(new QueryTimeoutImpl(timeoutMs));
+                FacetsCollector facetsCollector = new FacetsCollector();
+                TopDocs topDocs = FacetsCollector.search(searcher, query, (page + 1) * size, facetsCollector);
+                ScoreDoc[] pageDocs = Arrays.copyOfRange(topDocs.scoreDocs,
+                        Math.min(page * size, topDocs.scoreDocs.length), topDocs.scoreDocs.length);
+                String[] highlights = UnifiedHighlighter.builder(searcher, analyzer).build()
+                        .highlight(CONTENT, query, new TopDocs(topDocs.totalHits, pageDocs), 1);
+
+                StoredFields storedFields = searcher.storedFields();
+                List<SearchDto.Hit> hits = new ArrayList<>(pageDocs.length);
+                for (int i = 0; i < pageDocs.length; i++) {
+                    Document doc = storedFields.document(pageDocs[i].doc);
+                    hits.add(toHit(doc, highlights[i], pageDocs[i].score));
+                }
+
+                return SearchDto.Results.builder()
+                        .hits(hits)
+                        .totalHits(topDocs.totalHits.value)
+                        .page(page)
+                        .size(size)
+                        .facets(facetCounts(searcher.getIndexReader(), facetsCollector))
+                        .build();
+            } finally {
+                searcherManager.release(shared);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Map<String, List<SearchDto.FacetCount>> facetCounts(IndexReader reader, FacetsCollector collector)
+            throws IOException {
+        Map<String, List<SearchDto.FacetCount>> result = new LinkedHashMap<>();
+        SortedSetDocValuesReaderState state = facetState(reader);
+        if (state == null) {
+            return result;
+        }
+        Facets facets = new SortedSetDocValuesFacetCounts(state, collector);
+        for (String dimension : FACET_DIMENSIONS) {
+            FacetResult facetResult;
+            try {
+                facetResult = facets.getTopChildren(FACET_LIMIT, dimension);
+            } catch (IllegalArgumentException ex) {
+                continue; // nothing indexed with this dimension yet
+            }
+            if (facetResult == null) {
+                continue;
+            }
+            List<SearchDto.FacetCount> counts = new ArrayList<>();
+            for (LabelAndValue labelAndValue : facetResult.labelValues) {
+                counts.add(SearchDto.FacetCount.builder()
+                        .value(labelAndValue.label)
+                        .count(labelAndValue.value.intValue())
+                        .build());
+            }
+            result.put(dimension, counts);
+        }
+        return result;
+    }
+
+    // The ordinal state is costly to build, so it is kept until the reader changes
+    private SortedSetDocValuesReaderState facetState(IndexReader reader) throws IOException {
+        FacetState current = facetState;
+        if (current != null && current.reader() == reader) {
+            return current.state();
+        }
+        SortedSetDocValuesReaderState state;
+        try {
+            state = new DefaultSortedSetDocValuesReaderState(reader, facetsConfig);
+        } catch (IllegalArgumentException ex) {
+            state = null; // empty index, no facet field yet
+        }
+        facetState = new FacetState(reader, state);
+        return state;
+    }
+
+    private Term uid(SearchDocument.Type type, Long id) {
+        return new Term(UID, type.name() + ":" + id);
+    }
+
+    private Document toDocument(SearchDocument source) {
+        Document doc = new Document();
+        doc.add(new StringField(UID, uid(source.type(), source.id()).text(), Field.Store.NO));
+        doc.add(new StringField(TYPE, source.type().name(), Field.Store.YES));
+        doc.add(new StoredField(ID, source.id()));
+        doc.add(new LongPoint(GENERATION, generation));
+        if (source.title() != null) {
+            // A comment carries its post's title for display only
+            doc.add(source.type() == SearchDocument.Type.COMMENT
+                    ? new StoredField(TITLE, source.title())
+                    : new TextField(TITLE, source.title(), Field.Store.YES));
+        }
+        if (source.content() != null) {
+            doc.add(new TextField(CONTENT, source.content(), Field.Store.YES));
+        }
+        if (source.subredditName() != null) {
+            doc.add(new StringField(SUBREDDIT, source.subredditName(), Field.Store.YES));
+            if (source.type() != SearchDocument.Type.SUBREDDIT) {
+                doc.add(new SortedSetDocValuesFacetField(SUBREDDIT, source.subredditName()));
+            }
+        }
+        if (source.subredditId() != null) {
+            doc.add(new StoredField(SUBREDDIT_ID, source.subredditId()));
+        }
+        if (source.postType() != null) {
+            doc.add(new StringField(POST_TYPE, source.postType(), Field.Store.YES));
+            doc.add(new SortedSetDocValuesFacetField(POST_TYPE, source.postType()));
+        }
+        if (source.postId() != null) {
+            doc.add(new StoredField(POST_ID, source.postId()));
+        }
+        if (source.authorUsername() != null) {
+            doc.add(new StringField(AUTHOR, source.authorUsername(), Field.Store.YES));
+        }
+        doc.add(new StoredField(VOTE_COUNT, source.voteCount()));
+        doc.add(new StoredField(COMMENT_COUNT, source.commentCount()));
+        doc.add(new StoredField(MEMBER_COUNT, source.memberCount()));
+        if (source.createdAt() != null) {
+            doc.add(new StoredField(CREATED_AT, source.createdAt().toString()));
+        }
+        return doc;
+    }
+
+    private SearchDto.Hit toHit(Document doc, String highlight, float score) {
+        SearchDocument.Type type = SearchDocument.Type.valueOf(doc.get(TYPE));
+        SearchDto.Hit.HitBuilder hit = SearchDto.Hit.builder()
+                .type(type.name())
+                .id(longValue(doc, ID))
+                .highlight(highlight)
+                .subredditName(doc.get(SUBREDDIT))
+                .subredditId(longValue(doc, SUBREDDIT_ID))
+                .authorUsername(doc.get(AUTHOR))
+                .createdAt(doc.get(CREATED_AT))
+                .score(score);
+
+        switch (type) {
+            case POST -> hit.title(doc.get(TITLE))
+                    .content(doc.get(CONTENT))
+                    .postType(doc.get(POST_TYPE))
+                    .postId(longValue(doc, POST_ID))
+                    .voteCount(intValue(doc, VOTE_COUNT))
+                    .commentCount(intValue(doc, COMMENT_COUNT));
+            case COMMENT -> hit.title(doc.get(TITLE))
+                    .content(doc.get(CONTENT))
+                    .postId(longValue(doc, POST_ID))
+                    .voteCount(intValue(doc, VOTE_COUNT));
+            case SUBREDDIT -> hit.name(doc.get(TITLE))
+                    .description(doc.get(CONTENT))
+                    .memberCount(intValue(doc, MEMBER_COUNT));
+        }
+        return hit.build();
+    }
+
+    private static Long longValue(Document doc, String field) {
+        IndexableField value = doc.getField(field);
+        return value != null ? value.numericValue().longValue() : null;
+    }
+
+    private static Integer intValue(Document doc, String field) {
+        IndexableField value = doc.getField(field);
+        return value != null ? value.numericValue().intValue() : null;
+    }
+
+    private record FacetState(IndexReader reader, SortedSetDocValuesReaderState state) {
+    }
+}
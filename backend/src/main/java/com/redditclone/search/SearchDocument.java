@@ -0,0 +1,53 @@
+package com.redditclone.search;
+
+import com.redditclone.model.Comment;
+import com.redditclone.model.Post;
+import com.redditclone.model.Subreddit;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot of an entity as it is stored in the search index. Built while the
+ * entity is still attached so indexing never touches lazy associations.
+ */
+public record SearchDocument(
+        Type type,
+        Long id,
+        String title,
+        String content,
+        String subredditName,
+        Long subredditId,
+        String postType,
+        Long postId,
+        String authorUsername,
+        int voteCount,
+        int commentCount,
+        int memberCount,
+        LocalDateTime createdAt) {
+
+    public enum Type {
+        POST, COMMENT, SUBREDDIT
+    }
+
+    public static SearchDocument of(Post post) {
+        return new SearchDocument(Type.POST, post.getId(), post.getTitle(), post.getContent(),
+                post.getSubreddit().getName(), post.getSubreddit().getId(), post.getPostType().name(),
+                post.getId(), post.getAuthor().getUsername(), post.getVoteCount(), post.getCommentCount(), 0,
+                post.getCreatedAt());
+    }
+
+    public static SearchDocument of(Comment comment) {
+        Post post = comment.getPost();
+        return new SearchDocument(Type.COMMENT, comment.getId(), post.getTitle(), comment.getContent(),
+                post.getSubreddit().getName(), post.getSubreddit().getId(), null,
+                post.getId(), comment.getAuthor().getUsername(), comment.getVoteCount(), 0, 0,
+                comment.getCreatedAt());
+    }
+
+    public static SearchDocument of(Subreddit subreddit) {
+        return new SearchDocument(Type.SUBREDDIT, subreddit.getId(), subreddit.getName(),
+                subreddit.getDescription(), subreddit.getName(), subreddit.getId(), null,
+                null, subreddit.getCreator().getUsername(), 0, 0, subreddit.getMemberCount(),
+                subreddit.getCreatedAt());
+    }
+}
@@ -0,0 +1,77 @@
+package com.redditclone.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent search sources concurrently on the bounded search executor.
+ * Each source gets the same deadline; sources that miss it or fail are left out
+ * and listed under {@code "unavailable"}, so the response carries whatever
+ * finished in time and latency tracks the slowest source rather than the sum.
+ */
+@Component
+@Slf4j
+public class SearchFanOut {
+
+    public static final String UNAVAILABLE = "unavailable";
+
+    private final AsyncTaskExecutor executor;
+    private final long timeoutMs;
+
+    public SearchFanOut(@Qualifier("searchExecutor") AsyncTaskExecutor executor,
+            @Value("${search.source-timeout-ms}") long timeoutMs) {
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public Map<String, Object> execute(Map<String, Supplier<?>> sources) {
+        Map<String, CompletableFuture<?>> futures = new LinkedHashMap<>();
+        List<String> unavailable = new ArrayList<>();
+        sources.forEach((name, source) -> {
+            try {
+                futures.put(name, CompletableFuture.supplyAsync(source, executor));
+            } catch (RejectedExecutionException ex) {
+                log.warn("Search source '{}' rejected, executor saturated", name);
+                unavailable.add(name);
+            }
+        });
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        futures.forEach((name, future) -> {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                results.put(name, future.get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException ex) {
+                // Cancelling would not interrupt the worker; the index stops the search at its own deadline
+                log.warn("Search source '{}' timed out after {} ms", name, timeoutMs);
+                unavailable.add(name);
+            } catch (ExecutionException ex) {
+                log.error("Search source '{}' failed", name, ex.getCause());
+                unavailable.add(name);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                unavailable.add(name);
+            }
+        });
+
+        if (!unavailable.isEmpty()) {
+            results.put(UNAVAILABLE, unavailable);
+        }
+        return results;
+    }
+}
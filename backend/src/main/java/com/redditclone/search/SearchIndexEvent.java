@@ -0,0 +1,16 @@
+package com.redditclone.search;
+
+/**
+ * Published by services when an indexed entity changes; applied to the index
+ * once the surrounding transaction commits. A null document means removal.
+ */
+public record SearchIndexEvent(SearchDocument.Type type, Long id, SearchDocument document) {
+
+    public static SearchIndexEvent upsert(SearchDocument document) {
+        return new SearchIndexEvent(document.type(), document.id(), document);
+    }
+
+    public static SearchIndexEvent delete(SearchDocument.Type type, Long id) {
+        return new SearchIndexEvent(type, id, null);
+    }
+}
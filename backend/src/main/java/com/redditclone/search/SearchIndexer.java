@@ -0,0 +1,119 @@
+package com.redditclone.search;
+
+import com.redditclone.repository.CommentRepository;
+import com.redditclone.repository.PostRepository;
+import com.redditclone.repository.SubredditRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the search index in step with the database: applies entity changes
+ * after their transaction commits and rebuilds the whole index on demand.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchIndexer {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final LuceneSearchIndex searchIndex;
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final SubredditRepository subredditRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    // On a single thread, so changes to one document apply in the order they committed
+    @Async("searchIndexExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onIndexEvent(SearchIndexEvent event) {
+        if (event.document() != null) {
+            searchIndex.index(event.document());
+        } else {
+            searchIndex.delete(event.type(), event.id());
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (searchIndex.isEmpty()) {
+            rebuild();
+        }
+    }
+
+    @Async
+    public void rebuildAsync() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            log.info("Search index rebuild already running");
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            // Documents are replaced in place, so search keeps serving the old ones until then
+            long generation = searchIndex.startGeneration();
+            long subreddits = indexAll(subredditRepository, s -> true, SearchDocument::of);
+            long posts = indexAll(postRepository,
+                    p -> !Boolean.TRUE.equals(p.getIsDeleted()), SearchDocument::of);
+            long comments = indexAll(commentRepository,
+                    c -> !Boolean.TRUE.equals(c.getIsDeleted()), SearchDocument::of);
+            searchIndex.deleteOlderThan(generation);
+            searchIndex.commit();
+            searchIndex.refresh();
+            log.info("Rebuilt search index: {} subreddits, {} posts, {} comments in {} ms",
+                    subreddits, posts, comments, System.currentTimeMillis() - start);
+        } catch (Exception ex) {
+            log.error("Search index rebuild failed", ex);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    // One short read-only transaction per batch keeps the persistence context small
+    private <T> long indexAll(JpaRepository<T, Long> repository, Predicate<T> include,
+            Function<T, SearchDocument> toDocument) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        AtomicLong indexed = new AtomicLong();
+        int page = 0;
+        boolean hasNext;
+        do {
+            PageRequest pageRequest = PageRequest.of(page++, BATCH_SIZE, Sort.by("id"));
+            hasNext = Boolean.TRUE.equals(transaction.execute(status -> {
+                Page<T> entities = repository.findAll(pageRequest);
+                entities.getContent().stream()
+                        .filter(include)
+                        .map(toDocument)
+                        .forEach(document -> {
+                            searchIndex.index(document);
+                            indexed.incrementAndGet();
+                        });
+                return entities.hasNext();
+            }));
+        } while (hasNext);
+        return indexed.get();
+    }
+}
@@ -0,0 +1,25 @@
+package com.redditclone.search;
+
+import com.redditclone.model.Subreddit;
+import com.redditclone.model.User;
+
+/**
+ * Published when a subreddit or user name should become suggestible.
+ */
+public record SuggestionEvent(Type type, String name, long weight) {
+
+    public enum Type {
+        SUBREDDIT,
+        USER
+    }
+
+    public static SuggestionEvent of(Subreddit subreddit) {
+        return new SuggestionEvent(Type.SUBREDDIT, subreddit.getName(),
+                subreddit.getMemberCount() != null ? subreddit.getMemberCount() : 0);
+    }
+
+    public static SuggestionEvent of(User user) {
+        return new SuggestionEvent(Type.USER, user.getUsername(),
+                user.getKarma() != null ? user.getKarma() : 0);
+    }
+}
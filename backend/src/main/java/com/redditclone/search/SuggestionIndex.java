@@ -0,0 +1,109 @@
+package com.redditclone.search;
+
+import com.redditclone.dto.SearchDto;
+import com.redditclone.repository.SubredditRepository;
+import com.redditclone.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory typeahead over subreddit names (weighted by members) and usernames
+ * (weighted by karma). Loaded at startup and rebuilt periodically so weights
+ * catch up; new names are added as soon as their transaction commits. Names
+ * that arrive while a rebuild is loading are also replayed onto the new tries
+ * before they are swapped in, so the swap does not drop them.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SuggestionIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private final SubredditRepository subredditRepository;
+    private final UserRepository userRepository;
+
+    private volatile SuggestionTrie subreddits = new SuggestionTrie(MAX_SUGGESTIONS);
+    private volatile SuggestionTrie users = new SuggestionTrie(MAX_SUGGESTIONS);
+
+    private final Object rebuildLock = new Object();
+    // Events seen since the running rebuild started loading; null when none is running
+    private List<SuggestionEvent> missedEvents;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${search.suggest.refresh-interval-ms}",
+            fixedDelayString = "${search.suggest.refresh-interval-ms}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (rebuildLock) {
+            missedEvents = new ArrayList<>();
+        }
+        try {
+            SuggestionTrie newSubreddits = new SuggestionTrie(MAX_SUGGESTIONS);
+            SuggestionTrie newUsers = new SuggestionTrie(MAX_SUGGESTIONS);
+            List<SubredditRepository.NameWeight> subredditNames = subredditRepository.findAllNameWeights();
+            List<UserRepository.NameWeight> usernames = userRepository.findAllNameWeights();
+            subredditNames.forEach(s -> newSubreddits.put(s.getName(), weight(s.getWeight())));
+            usernames.forEach(u -> newUsers.put(u.getName(), weight(u.getWeight())));
+            synchronized (rebuildLock) {
+                for (SuggestionEvent event : missedEvents) {
+                    (event.type() == SuggestionEvent.Type.SUBREDDIT ? newSubreddits : newUsers)
+                            .put(event.name(), event.weight());
+                }
+                subreddits = newSubreddits;
+                users = newUsers;
+            }
+            log.info("Loaded {} subreddit and {} user suggestions in {} ms",
+                    subredditNames.size(), usernames.size(), System.currentTimeMillis() - start);
+        } finally {
+            synchronized (rebuildLock) {
+                missedEvents = null;
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onSuggestionEvent(SuggestionEvent event) {
+        trieFor(event).put(event.name(), event.weight());
+    }
+
+    public SearchDto.Suggestions suggest(String prefix, int limit) {
+        return SearchDto.Suggestions.builder()
+                .communities(toSuggestions(subreddits.suggest(prefix, limit)))
+                .users(toSuggestions(users.suggest(prefix, limit)))
+                .build();
+    }
+
+    // The trie to add the event to now; during a rebuild the event is also kept for replay
+    private SuggestionTrie trieFor(SuggestionEvent event) {
+        synchronized (rebuildLock) {
+            if (missedEvents != null) {
+                missedEvents.add(event);
+            }
+            return event.type() == SuggestionEvent.Type.SUBREDDIT ? subreddits : users;
+        }
+    }
+
+    private List<SearchDto.Suggestion> toSuggestions(List<SuggestionTrie.Entry> entries) {
+        return entries.stream()
+                .map(e -> SearchDto.Suggestion.builder().name(e.name()).weight(e.weight()).build())
+                .collect(Collectors.toList());
+    }
+
+    private long weight(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,75 @@
+package com.redditclone.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Case-insensitive prefix index where every node keeps its own top entries by
+ * weight, so a lookup is a walk down the prefix plus an array copy. Writers are
+ * serialized and publish each node's list as a fresh array; readers never lock.
+ */
+class SuggestionTrie {
+
+    record Entry(String name, long weight) {
+    }
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    private static final Comparator<Entry> BY_WEIGHT = Comparator
+            .comparingLong(Entry::weight).reversed()
+            .thenComparing(Entry::name, String.CASE_INSENSITIVE_ORDER);
+
+    private static final class Node {
+        private final Map<Character, Node> children = new ConcurrentHashMap<>();
+        private volatile Entry[] top = EMPTY;
+    }
+
+    private final Node root = new Node();
+    private final int capacity;
+
+    SuggestionTrie(int capacity) {
+        this.capacity = capacity;
+    }
+
+    synchronized void put(String name, long weight) {
+        String key = name.toLowerCase(Locale.ROOT);
+        Entry entry = new Entry(name, weight);
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+            offer(node, entry);
+        }
+    }
+
+    List<Entry> suggest(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+        }
+        if (node == null || key.isEmpty()) {
+            return List.of();
+        }
+        Entry[] top = node.top;
+        return Arrays.asList(top).subList(0, Math.min(limit, top.length));
+    }
+
+    // Replaces any previous entry for the same name, so a re-put updates its weight
+    private void offer(Node node, Entry entry) {
+        Entry[] current = node.top;
+        List<Entry> merged = new ArrayList<>(current.length + 1);
+        for (Entry existing : current) {
+            if (!existing.name().equalsIgnoreCase(entry.name())) {
+                merged.add(existing);
+            }
+        }
+        merged.add(entry);
+        merged.sort(BY_WEIGHT);
+        node.top = merged.subList(0, Math.min(capacity, merged.size())).toArray(EMPTY);
+    }
+}
@@ -7,11 +7,15 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 @Component
 @RequiredArgsConstructor
 public class CurrentUser {
 
+    private static final String REQUEST_ATTRIBUTE = CurrentUser.class.getName() + ".user";
+
     private final UserRepository userRepository;
 
     public User getUser() {
@@ -19,16 +23,19 @@ public class CurrentUser {
         if (authentication == null || !authentication.isAuthenticated()) {
             return null;
         }
-        Object principal = authentication.getPrincipal();
-        if (principal instanceof UserDetails userDetails) {
-            return userRepository.findByUsername(userDetails.getUsername()).orElse(null);
+        if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return loadOncePerRequest(principal.getId());
         }
         return null;
     }
 
+    // Read from the token claims, no database round trip
     public Long getUserId() {
-        User user = getUser();
-        return user != null ? user.getId() : null;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
+        }
+        return null;
     }
 
     public String getUsername() {
@@ -38,4 +45,21 @@ public class CurrentUser {
         }
         return null;
     }
+
+    // Memoized in the request attributes; outside a web request (async work) it falls back to a lookup
+    private User loadOncePerRequest(Long userId) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return userRepository.findById(userId).orElse(null);
+        }
+        if (attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof User cached
+                && userId.equals(cached.getId())) {
+            return cached;
+        }
+        User user = userRepository.findById(userId).orElse(null);
+        if (user != null) {
+            attributes.setAttribute(REQUEST_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
 }
@@ -0,0 +1,87 @@
+package com.redditclone.security;
+
+import com.redditclone.model.RefreshToken;
+import com.redditclone.repository.RefreshTokenRepository;
+import com.redditclone.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Database-backed store for deployments without Redis. Rotation deletes the
+ * presented token and inserts its successor; expired rows are removed in
+ * batches by a background sweep.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.refresh-token-store", havingValue = "jpa")
+@Slf4j
+public class JpaRefreshTokenStore implements RefreshTokenStore {
+
+    private static final int SWEEP_BATCH_SIZE = 1000;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final Duration refreshTokenLifetime;
+
+    public JpaRefreshTokenStore(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository,
+            @Value("${jwt.refresh-token-expiration}") long refreshTokenExpiration) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.refreshTokenLifetime = Duration.ofMillis(refreshTokenExpiration);
+    }
+
+    @Override
+    @Transactional
+    public String issue(Long userId) {
+        String token = RefreshTokens.newToken();
+        refreshTokenRepository.save(RefreshToken.builder()
+                .token(RefreshTokens.hash(token))
+                .user(userRepository.getReferenceById(userId))
+                .expiryDate(LocalDateTime.now().plus(refreshTokenLifetime))
+                .build());
+        return token;
+    }
+
+    @Override
+    @Transactional
+    public Optional<Rotation> rotate(String refreshToken) {
+        Optional<RefreshToken> stored = refreshTokenRepository.findByToken(RefreshTokens.hash(refreshToken));
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+        RefreshToken current = stored.get();
+        refreshTokenRepository.delete(current);
+        if (current.isExpired()) {
+            return Optional.empty();
+        }
+        Long userId = current.getUser().getId();
+        return Optional.of(new Rotation(userId, issue(userId)));
+    }
+
+    @Override
+    @Transactional
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.deleteByUserId(userId);
+    }
+
+    // Each batch commits on its own so the sweep never holds long locks
+    @Scheduled(fixedDelayString = "${auth.refresh-token-sweep-interval-ms}")
+    public void sweepExpired() {
+        int removed;
+        int total = 0;
+        do {
+            removed = refreshTokenRepository.deleteExpiredBatch(LocalDateTime.now(), SWEEP_BATCH_SIZE);
+            total += removed;
+        } while (removed == SWEEP_BATCH_SIZE);
+        if (total > 0) {
+            log.info("Removed {} expired refresh tokens", total);
+        }
+    }
+}
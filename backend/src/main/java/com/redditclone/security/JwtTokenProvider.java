@@ -1,76 +1,112 @@
 package com.redditclone.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.redditclone.model.Role;
+import com.redditclone.model.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.time.Instant;
 import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtTokenProvider {
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLES_CLAIM = "roles";
+    // iat only has second precision, too coarse to order a token against a revocation in the same second
+    static final String ISSUED_AT_MS_CLAIM = "iat_ms";
 
-    @Value("${jwt.access-token-expiration}")
-    private long accessTokenExpiration;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long accessTokenExpiration;
 
-    @Value("${jwt.refresh-token-expiration}")
-    private long refreshTokenExpiration;
+    // Recently verified tokens, so repeat requests skip the HMAC check and JSON parse
+    private final Cache<String, Claims> verified;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
+    public JwtTokenProvider(@Value("${jwt.secret}") String jwtSecret,
+            @Value("${jwt.access-token-expiration}") long accessTokenExpiration,
+            @Value("${jwt.verified-cache-size}") int verifiedCacheSize) {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.accessTokenExpiration = accessTokenExpiration;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        long remainingMs = claims.getExpiration() != null
+                                ? claims.getExpiration().getTime() - System.currentTimeMillis()
+                                : accessTokenExpiration;
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+                    }
 
-    public String generateAccessToken(Authentication authentication) {
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        return generateToken(userDetails.getUsername(), accessTokenExpiration);
-    }
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
 
-    public String generateAccessToken(String username) {
-        return generateToken(username, accessTokenExpiration);
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
-    public String generateRefreshToken(String username) {
-        return generateToken(username, refreshTokenExpiration);
-    }
-
-    private String generateToken(String subject, long expiration) {
+    // Id and roles travel in the token so requests authenticate without a user lookup
+    public String generateAccessToken(User user) {
         Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + expiration);
+        Date expiryDate = new Date(now.getTime() + accessTokenExpiration);
 
         return Jwts.builder()
-                .subject(subject)
+                .subject(user.getUsername())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLES_CLAIM, user.getRoles().stream().map(Role::getName).collect(Collectors.toList()))
                 .issuedAt(now)
+                .claim(ISSUED_AT_MS_CLAIM, now.getTime())
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
-    }
-
-    public boolean validateToken(String token) {
+    /**
+     * Verifies the token and returns its claims, or empty if the signature,
+     * format or expiry check fails. Tokens seen recently are answered from the
+     * cache, which drops each entry when its token expires.
+     */
+    public Optional<Claims> parseClaims(String token) {
+        Claims cached = verified.getIfPresent(token);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            verified.put(token, claims);
+            return Optional.of(claims);
         } catch (JwtException | IllegalArgumentException ex) {
-            return false;
+            return Optional.empty();
+        }
+    }
+
+    // Millisecond issue time, falling back to iat for tokens issued without it
+    static Instant issuedAt(Claims claims) {
+        Object millis = claims.get(ISSUED_AT_MS_CLAIM);
+        if (millis instanceof Number number) {
+            return Instant.ofEpochMilli(number.longValue());
         }
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt != null ? issuedAt.toInstant() : null;
     }
 }
@@ -0,0 +1,95 @@
+package com.redditclone.security;
+
+import com.redditclone.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process throttle for password checks, applied before any hashing work.
+ * Failed sign-ins are counted per account, and every attempt (sign-in or
+ * registration) is counted per client IP, each over a fixed window.
+ */
+@Component
+public class LoginAttemptLimiter {
+
+    private static final class Window {
+        private final long startMs;
+        private int count;
+
+        private Window(long startMs) {
+            this.startMs = startMs;
+        }
+    }
+
+    private final Map<String, Window> accountFailures = new ConcurrentHashMap<>();
+    private final Map<String, Window> ipAttempts = new ConcurrentHashMap<>();
+
+    private final int maxAccountFailures;
+    private final long accountWindowMs;
+    private final int maxIpAttempts;
+    private final long ipWindowMs;
+
+    public LoginAttemptLimiter(@Value("${auth.login.max-account-failures}") int maxAccountFailures,
+            @Value("${auth.login.account-window-ms}") long accountWindowMs,
+            @Value("${auth.login.max-ip-attempts}") int maxIpAttempts,
+            @Value("${auth.login.ip-window-ms}") long ipWindowMs) {
+        this.maxAccountFailures = maxAccountFailures;
+        this.accountWindowMs = accountWindowMs;
+        this.maxIpAttempts = maxIpAttempts;
+        this.ipWindowMs = ipWindowMs;
+    }
+
+    /** Counts an attempt from the IP and rejects it if the IP or account is over its limit. */
+    public void checkAllowed(String account, String clientIp) {
+        long now = System.currentTimeMillis();
+        if (account != null) {
+            Window failures = accountFailures.get(normalize(account));
+            if (failures != null && now - failures.startMs < accountWindowMs && failures.count >= maxAccountFailures) {
+                throw rejected(failures, accountWindowMs, now);
+            }
+        }
+        if (clientIp != null) {
+            Window attempts = increment(ipAttempts, clientIp, ipWindowMs, now);
+            if (attempts.count > maxIpAttempts) {
+                throw rejected(attempts, ipWindowMs, now);
+            }
+        }
+    }
+
+    public void recordFailure(String account) {
+        increment(accountFailures, normalize(account), accountWindowMs, System.currentTimeMillis());
+    }
+
+    public void recordSuccess(String account) {
+        accountFailures.remove(normalize(account));
+    }
+
+    @Scheduled(fixedDelayString = "${auth.login.account-window-ms}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        accountFailures.values().removeIf(window -> now - window.startMs >= accountWindowMs);
+        ipAttempts.values().removeIf(window -> now - window.startMs >= ipWindowMs);
+    }
+
+    private Window increment(Map<String, Window> windows, String key, long windowMs, long now) {
+        return windows.compute(key, (k, window) -> {
+            Window current = window == null || now - window.startMs >= windowMs ? new Window(now) : window;
+            current.count++;
+            return current;
+        });
+    }
+
+    private TooManyRequestsException rejected(Window window, long windowMs, long now) {
+        long retryAfter = Math.max(1, (window.startMs + windowMs - now + 999) / 1000);
+        return new TooManyRequestsException("Too many sign-in attempts, please try again later", retryAfter);
+    }
+
+    private String normalize(String account) {
+        return account.trim().toLowerCase(Locale.ROOT);
+    }
+}
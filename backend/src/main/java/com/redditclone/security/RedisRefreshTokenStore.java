@@ -0,0 +1,147 @@
+package com.redditclone.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Refresh tokens in Redis with native expiry. Each token hash maps to its user
+ * and family; a family key marks the login session as live. Rotation marks the
+ * presented token as used and creates its successor in one script, so a token
+ * presented a second time is a replay and revokes the whole family.
+ *
+ * <p>All of a user's keys carry the user id as a hash tag, so the script's keys
+ * share one slot on Redis Cluster. A token only reveals its user through a small
+ * lookup key, which is read before the script runs.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.refresh-token-store", havingValue = "redis", matchIfMissing = true)
+@Slf4j
+public class RedisRefreshTokenStore implements RefreshTokenStore {
+
+    private static final String LOOKUP_PREFIX = "auth:rt:lookup:";
+    private static final String KEY_PREFIX = "auth:rt:{";
+
+    private static final long ROTATED = 1;
+    private static final long REPLAYED = 2;
+
+    // KEYS: presented token, successor token, family, user's family index. ARGV: ttl seconds, user id, family id.
+    // Returns {status, userId}, or nil when the token is unknown, no longer matches what the caller
+    // looked up, or its family is gone.
+    private static final RedisScript<List> ROTATE = new DefaultRedisScript<>("""
+            local token = redis.call('HMGET', KEYS[1], 'uid', 'fam', 'used')
+            if token[1] ~= ARGV[2] or token[2] ~= ARGV[3] then
+              return nil
+            end
+            if token[3] == '1' then
+              redis.call('DEL', KEYS[3])
+              redis.call('SREM', KEYS[4], ARGV[3])
+              return {2, ARGV[2]}
+            end
+            if redis.call('EXISTS', KEYS[3]) == 0 then
+              redis.call('SREM', KEYS[4], ARGV[3])
+              return nil
+            end
+            redis.call('HSET', KEYS[1], 'used', '1')
+            redis.call('HSET', KEYS[2], 'uid', ARGV[2], 'fam', ARGV[3], 'used', '0')
+            redis.call('EXPIRE', KEYS[2], ARGV[1])
+            redis.call('EXPIRE', KEYS[3], ARGV[1])
+            -- The user's family index must outlive every family it lists, or logout misses them
+            redis.call('EXPIRE', KEYS[4], ARGV[1])
+            return {1, ARGV[2]}
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+
+    public RedisRefreshTokenStore(StringRedisTemplate redisTemplate,
+            @Value("${jwt.refresh-token-expiration}") long refreshTokenExpiration) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = Duration.ofMillis(refreshTokenExpiration);
+    }
+
+    @Override
+    public String issue(Long userId) {
+        String uid = userId.toString();
+        String familyId = UUID.randomUUID().toString();
+        String token = RefreshTokens.newToken();
+        String tokenHash = RefreshTokens.hash(token);
+        String userKey = userKey(uid);
+
+        redisTemplate.opsForValue().set(familyKey(uid, familyId), uid, ttl);
+        redisTemplate.opsForSet().add(userKey, familyId);
+        redisTemplate.expire(userKey, ttl);
+        redisTemplate.opsForValue().set(LOOKUP_PREFIX + tokenHash, uid, ttl);
+        String tokenKey = tokenKey(uid, tokenHash);
+        redisTemplate.opsForHash().putAll(tokenKey, Map.of("uid", uid, "fam", familyId, "used", "0"));
+        redisTemplate.expire(tokenKey, ttl);
+        return token;
+    }
+
+    @Override
+    public Optional<Rotation> rotate(String refreshToken) {
+        String tokenHash = RefreshTokens.hash(refreshToken);
+        String uid = redisTemplate.opsForValue().get(LOOKUP_PREFIX + tokenHash);
+        if (uid == null) {
+            return Optional.empty();
+        }
+        String tokenKey = tokenKey(uid, tokenHash);
+        Object familyId = redisTemplate.opsForHash().get(tokenKey, "fam");
+        if (familyId == null) {
+            return Optional.empty();
+        }
+
+        String successor = RefreshTokens.newToken();
+        String successorHash = RefreshTokens.hash(successor);
+        // Harmless if the script then refuses: it points at a token that never gets created
+        redisTemplate.opsForValue().set(LOOKUP_PREFIX + successorHash, uid, ttl);
+        List<?> result = redisTemplate.execute(ROTATE,
+                List.of(tokenKey, tokenKey(uid, successorHash), familyKey(uid, familyId.toString()), userKey(uid)),
+                String.valueOf(ttl.toSeconds()), uid, familyId.toString());
+        if (result == null || result.size() < 2) {
+            return Optional.empty();
+        }
+        long status = ((Number) result.get(0)).longValue();
+        Long userId = Long.valueOf(result.get(1).toString());
+        if (status == REPLAYED) {
+            log.warn("Refresh token replay for user {}, token family revoked", userId);
+            return Optional.empty();
+        }
+        return status == ROTATED ? Optional.of(new Rotation(userId, successor)) : Optional.empty();
+    }
+
+    @Override
+    public void revokeAll(Long userId) {
+        String uid = userId.toString();
+        String userKey = userKey(uid);
+        Set<String> families = redisTemplate.opsForSet().members(userKey);
+        if (families != null && !families.isEmpty()) {
+            redisTemplate.delete(families.stream().map(family -> familyKey(uid, family)).collect(Collectors.toList()));
+        }
+        redisTemplate.delete(userKey);
+    }
+
+    private static String tokenKey(String uid, String tokenHash) {
+        return KEY_PREFIX + uid + "}:token:" + tokenHash;
+    }
+
+    private static String familyKey(String uid, String familyId) {
+        return KEY_PREFIX + uid + "}:family:" + familyId;
+    }
+
+    private static String userKey(String uid) {
+        return KEY_PREFIX + uid + "}:families";
+    }
+}
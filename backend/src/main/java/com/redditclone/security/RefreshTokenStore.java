@@ -0,0 +1,24 @@
+package com.redditclone.security;
+
+import java.util.Optional;
+
+/**
+ * Issues, rotates and revokes opaque refresh tokens. Implementations keep only
+ * the SHA-256 of a token, never the token itself.
+ */
+public interface RefreshTokenStore {
+
+    record Rotation(Long userId, String refreshToken) {
+    }
+
+    /** Starts a new token family for a fresh login and returns its first token. */
+    String issue(Long userId);
+
+    /**
+     * Exchanges a valid token for its successor in the same family. Empty if the
+     * token is unknown, expired or revoked.
+     */
+    Optional<Rotation> rotate(String refreshToken);
+
+    void revokeAll(Long userId);
+}
@@ -0,0 +1,81 @@
+package com.redditclone.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Revokes stateless access tokens per user: tokens issued before a user's
+ * not-before time are rejected. Times are kept in milliseconds, so a token
+ * issued in the same second as a revocation is still ordered against it. Entries live in a Redis sorted set shared by
+ * all instances and are mirrored into a local map, so the check on each
+ * request is a map lookup. Entries older than the access token lifetime can no
+ * longer match a live token and are pruned.
+ */
+@Component
+@Slf4j
+public class TokenDenyList {
+
+    private static final String KEY = "auth:deny-list";
+
+    private final StringRedisTemplate redisTemplate;
+    private final long accessTokenExpiration;
+
+    private volatile Map<Long, Long> notBefore = Map.of();
+
+    public TokenDenyList(StringRedisTemplate redisTemplate,
+            @Value("${jwt.access-token-expiration}") long accessTokenExpiration) {
+        this.redisTemplate = redisTemplate;
+        this.accessTokenExpiration = accessTokenExpiration;
+    }
+
+    /**
+     * Invalidates every access token already issued to the user, e.g. on logout
+     * or when the account is disabled.
+     */
+    public void denyUser(Long userId) {
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().add(KEY, userId.toString(), now);
+        Map<Long, Long> updated = new HashMap<>(notBefore);
+        updated.put(userId, now);
+        notBefore = updated;
+    }
+
+    public boolean isDenied(Long userId, Instant issuedAt) {
+        Long cutoff = notBefore.get(userId);
+        return cutoff != null && (issuedAt == null || issuedAt.toEpochMilli() < cutoff);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jwt.deny-list-refresh-ms}")
+    public void refresh() {
+        try {
+            long oldest = System.currentTimeMillis() - accessTokenExpiration;
+            ZSetOperations<String, String> entries = redisTemplate.opsForZSet();
+            entries.removeRangeByScore(KEY, Double.NEGATIVE_INFINITY, oldest);
+            Set<ZSetOperations.TypedTuple<String>> live = entries.rangeWithScores(KEY, 0, -1);
+            Map<Long, Long> loaded = new HashMap<>();
+            if (live != null) {
+                for (ZSetOperations.TypedTuple<String> entry : live) {
+                    if (entry.getValue() != null && entry.getScore() != null) {
+                        loaded.put(Long.valueOf(entry.getValue()), entry.getScore().longValue());
+                    }
+                }
+            }
+            notBefore = loaded;
+        } catch (RuntimeException ex) {
+            // Keep the last snapshot; revocations made on this instance are already in it
+            log.warn("Could not refresh token deny list: {}", ex.getMessage());
+        }
+    }
+}
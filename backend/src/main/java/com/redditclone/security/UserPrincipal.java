@@ -0,0 +1,64 @@
+package com.redditclone.security;
+
+import io.jsonwebtoken.Claims;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Authenticated user as described by a verified access token. Built from the
+ * token claims alone, so it carries no password and needs no database lookup.
+ */
+@Getter
+public class UserPrincipal implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final Collection<? extends GrantedAuthority> authorities;
+
+    public UserPrincipal(Long id, String username, Collection<? extends GrantedAuthority> authorities) {
+        this.id = id;
+        this.username = username;
+        this.authorities = authorities;
+    }
+
+    static UserPrincipal fromClaims(Claims claims) {
+        List<?> roles = claims.get(JwtTokenProvider.ROLES_CLAIM, List.class);
+        return new UserPrincipal(
+                claims.get(JwtTokenProvider.USER_ID_CLAIM, Long.class),
+                claims.getSubject(),
+                roles == null ? List.of() : roles.stream()
+                        .map(role -> new SimpleGrantedAuthority(role.toString()))
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
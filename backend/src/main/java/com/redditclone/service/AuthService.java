@@ -3,24 +3,28 @@ package com.redditclone.service;
 import com.redditclone.dto.AuthDto;
 import com.redditclone.exception.BadRequestException;
 import com.redditclone.exception.ResourceNotFoundException;
-import com.redditclone.model.RefreshToken;
 import com.redditclone.model.Role;
 import com.redditclone.model.User;
-import com.redditclone.repository.RefreshTokenRepository;
 import com.redditclone.repository.RoleRepository;
 import com.redditclone.repository.UserRepository;
+import com.redditclone.search.SuggestionEvent;
 import com.redditclone.security.JwtTokenProvider;
+import com.redditclone.security.LoginAttemptLimiter;
+import com.redditclone.security.RefreshTokenStore;
+import com.redditclone.security.TokenDenyList;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDateTime;
 import java.util.Set;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -28,86 +32,103 @@ public class AuthService {
 
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
-    private final RefreshTokenRepository refreshTokenRepository;
+    private final RefreshTokenStore refreshTokenStore;
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider jwtTokenProvider;
+    private final TokenDenyList tokenDenyList;
+    private final LoginAttemptLimiter loginAttemptLimiter;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
 
-    @Transactional
-    public AuthDto.AuthResponse register(AuthDto.RegisterRequest request) {
+    // Hashing runs before the insert's short transaction, so no pooled connection waits on BCrypt
+    public AuthDto.AuthResponse register(AuthDto.RegisterRequest request, String clientIp) {
+        loginAttemptLimiter.checkAllowed(null, clientIp);
         if (userRepository.existsByUsername(request.getUsername())) {
             throw new BadRequestException("Username is already taken");
         }
         if (userRepository.existsByEmail(request.getEmail())) {
             throw new BadRequestException("Email is already in use");
         }
-
-        Role userRole = roleRepository.findByName("ROLE_USER")
-                .orElseThrow(() -> new ResourceNotFoundException("Default role not found"));
-
-        User user = User.builder()
-                .username(request.getUsername())
-                .email(request.getEmail())
-                .password(passwordEncoder.encode(request.getPassword()))
-                .displayName(request.getUsername())
-                .roles(Set.of(userRole))
-                .build();
-
-        user = userRepository.save(user);
-
-        String accessToken = jwtTokenProvider.generateAccessToken(user.getUsername());
-        String refreshToken = createRefreshToken(user);
+        String passwordHash = passwordEncoder.encode(request.getPassword());
+
+        User user = new TransactionTemplate(transactionManager).execute(status -> {
+            Role userRole = roleRepository.findByName("ROLE_USER")
+                    .orElseThrow(() -> new ResourceNotFoundException("Default role not found"));
+            User created = userRepository.save(User.builder()
+                    .username(request.getUsername())
+                    .email(request.getEmail())
+                    .password(passwordHash)
+                    .displayName(request.getUsername())
+                    .roles(Set.of(userRole))
+                    .build());
+            eventPublisher.publishEvent(SuggestionEvent.of(created));
+            return created;
+        });
+
+        String accessToken = jwtTokenProvider.generateAccessToken(user);
+        String refreshToken = refreshTokenStore.issue(user.getId());
 
         return buildAuthResponse(user, accessToken, refreshToken);
     }
 
-    @Transactional
-    public AuthDto.AuthResponse login(AuthDto.LoginRequest request) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getUsernameOrEmail(), request.getPassword()));
+    // Not transactional for the same reason; the user lookup and token issue commit on their own
+    public AuthDto.AuthResponse login(AuthDto.LoginRequest request, String clientIp) {
+        String account = request.getUsernameOrEmail();
+        loginAttemptLimiter.checkAllowed(account, clientIp);
+
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(account, request.getPassword()));
+        } catch (BadCredentialsException ex) {
+            loginAttemptLimiter.recordFailure(account);
+            throw ex;
+        }
+        loginAttemptLimiter.recordSuccess(account);
 
         String username = authentication.getName();
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
 
-        String accessToken = jwtTokenProvider.generateAccessToken(authentication);
-        String refreshToken = createRefreshToken(user);
+        String accessToken = jwtTokenProvider.generateAccessToken(user);
+        String refreshToken = refreshTokenStore.issue(user.getId());
 
         return buildAuthResponse(user, accessToken, refreshToken);
     }
 
-    @Transactional
+    // Not transactional: the store commits rotations and revocations itself, so a rejected refresh keeps them
     public AuthDto.AuthResponse refreshToken(AuthDto.RefreshTokenRequest request) {
-        RefreshToken refreshToken = refreshTokenRepository.findByToken(request.getRefreshToken())
-                .orElseThrow(() -> new BadRequestException("Invalid refresh token"));
-
-        if (refreshToken.isExpired()) {
-            refreshTokenRepository.delete(refreshToken);
-            throw new BadRequestException("Refresh token has expired. Please login again.");
+        RefreshTokenStore.Rotation rotation = refreshTokenStore.rotate(request.getRefreshToken())
+                .orElseThrow(() -> new BadRequestException("Invalid or expired refresh token. Please login again."));
+
+        User user = userRepository.findById(rotation.userId())
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", rotation.userId()));
+        if (!Boolean.TRUE.equals(user.getEnabled())) {
+            // Covers families issued before the account was disabled
+            refreshTokenStore.revokeAll(user.getId());
+            throw new BadRequestException("Account is disabled");
         }
+        String newAccessToken = jwtTokenProvider.generateAccessToken(user);
 
-        User user = refreshToken.getUser();
-        String newAccessToken = jwtTokenProvider.generateAccessToken(user.getUsername());
-        String newRefreshToken = createRefreshToken(user);
-
-        refreshTokenRepository.delete(refreshToken);
-
-        return buildAuthResponse(user, newAccessToken, newRefreshToken);
+        return buildAuthResponse(user, newAccessToken, rotation.refreshToken());
     }
 
     @Transactional
     public void logout(Long userId) {
-        refreshTokenRepository.deleteByUserId(userId);
+        refreshTokenStore.revokeAll(userId);
+        tokenDenyList.denyUser(userId);
     }
 
-    private String createRefreshToken(User user) {
-        RefreshToken refreshToken = RefreshToken.builder()
-                .token(UUID.randomUUID().toString())
-                .user(user)
-                .expiryDate(LocalDateTime.now().plusDays(7))
-                .build();
-        return refreshTokenRepository.save(refreshToken).getToken();
+    /** Locks the account out: no new logins, refreshes or requests with tokens already issued. */
+    @Transactional
+    public void disableAccount(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+        user.setEnabled(false);
+        userRepository.save(user);
+        refreshTokenStore.revokeAll(userId);
+        tokenDenyList.denyUser(userId);
     }
 
     private AuthDto.AuthResponse buildAuthResponse(User user, String accessToken, String refreshToken) {
@@ -120,6 +141,8 @@ public class AuthService {
                 .avatarUrl(user.getAvatarUrl())
                 .bannerUrl(user.getBannerUrl())
                 .karma(user.getKarma())
+                .postKarma(user.getPostKarma())
+                .commentKarma(user.getCommentKarma())
                 .createdAt(user.getCreatedAt() != null ? user.getCreatedAt().toString() : null)
                 .build();
 
@@ -0,0 +1,38 @@
+package com.redditclone.service;
+
+import com.redditclone.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque "load more" position in a comment thread: the parent whose replies were
+ * cut off (null for top-level comments) and how many of them were already sent.
+ */
+public record CommentContinuation(Long parentId, int offset) {
+
+    private static final long ROOT = 0L;
+
+    public static CommentContinuation decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 2);
+            if (parts.length != 2) {
+                throw new BadRequestException("Invalid continuation token");
+            }
+            long parentId = Long.parseLong(parts[0]);
+            int offset = Integer.parseInt(parts[1]);
+            if (parentId < 0 || offset < 0) {
+                throw new BadRequestException("Invalid continuation token");
+            }
+            return new CommentContinuation(parentId == ROOT ? null : parentId, offset);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid continuation token");
+        }
+    }
+
+    public String encode() {
+        String raw = (parentId != null ? parentId : ROOT) + ":" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -6,18 +6,26 @@ import com.redditclone.exception.ResourceNotFoundException;
 import com.redditclone.model.Comment;
 import com.redditclone.model.Post;
 import com.redditclone.model.User;
-import com.redditclone.model.Vote;
 import com.redditclone.repository.CommentRepository;
+import com.redditclone.repository.CommentRepository.CommentNode;
 import com.redditclone.repository.PostRepository;
 import com.redditclone.repository.VoteRepository;
+import com.redditclone.search.SearchDocument;
+import com.redditclone.search.SearchIndexEvent;
 import com.redditclone.security.CurrentUser;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +36,9 @@ public class CommentService {
     private final PostRepository postRepository;
     private final VoteRepository voteRepository;
     private final CurrentUser currentUser;
+    private final ApplicationEventPublisher eventPublisher;
+    private final VoteAggregator voteAggregator;
+    private final ShardedCounters shardedCounters;
 
     @Transactional
     public CommentDto.Response create(Long postId, CommentDto.CreateRequest request) {
@@ -52,26 +63,32 @@ public class CommentService {
                 .build();
 
         comment = commentRepository.save(comment);
+        comment.setPath(Comment.childPath(parent != null ? parent.getPath() : null, comment.getId()));
 
-        // Update post comment count
-        post.setCommentCount((int) commentRepository.countByPostId(postId));
-        postRepository.save(post);
+        shardedCounters.increment(ShardedCounters.Counter.POST_COMMENTS, postId, 1);
 
-        return mapToResponse(comment);
+        eventPublisher.publishEvent(SearchIndexEvent.upsert(SearchDocument.of(comment)));
+        return mapToResponse(comment, Map.of());
     }
 
     @Transactional(readOnly = true)
-    public List<CommentDto.Response> getByPostId(Long postId) {
-        List<Comment> topLevelComments = commentRepository.findByPostIdAndParentIsNullOrderByCreatedAtDesc(postId);
-        return topLevelComments.stream()
-                .map(this::mapToResponseWithChildren)
-                .collect(Collectors.toList());
+    public CommentDto.ThreadResponse getThread(Long postId, String sort, int limit, int maxDepth) {
+        return loadThread(postId, null, 0, sort, limit, maxDepth);
+    }
+
+    @Transactional(readOnly = true)
+    public CommentDto.ThreadResponse getMoreComments(Long postId, String token, String sort, int limit,
+            int maxDepth) {
+        CommentContinuation continuation = CommentContinuation.decode(token);
+        return loadThread(postId, continuation.parentId(), continuation.offset(), sort, limit, maxDepth);
     }
 
     @Transactional(readOnly = true)
     public Page<CommentDto.Response> getByAuthor(Long authorId, Pageable pageable) {
-        return commentRepository.findByAuthorIdAndIsDeletedFalse(authorId, pageable)
-                .map(this::mapToResponse);
+        Page<Comment> comments = commentRepository.findByAuthorIdAndIsDeletedFalse(authorId, pageable);
+        Map<Long, Short> userVotes = resolveUserVotes(
+                comments.getContent().stream().map(Comment::getId).collect(Collectors.toList()));
+        return comments.map(comment -> mapToResponse(comment, userVotes));
     }
 
     @Transactional
@@ -86,7 +103,8 @@ public class CommentService {
 
         comment.setContent(request.getContent());
         comment = commentRepository.save(comment);
-        return mapToResponse(comment);
+        eventPublisher.publishEvent(SearchIndexEvent.upsert(SearchDocument.of(comment)));
+        return mapToResponse(comment, resolveUserVotes(List.of(comment.getId())));
     }
 
     @Transactional
@@ -102,33 +120,137 @@ public class CommentService {
         comment.setIsDeleted(true);
         comment.setContent("[deleted]");
         commentRepository.save(comment);
+        eventPublisher.publishEvent(SearchIndexEvent.delete(SearchDocument.Type.COMMENT, commentId));
     }
 
-    private CommentDto.Response mapToResponseWithChildren(Comment comment) {
-        CommentDto.Response response = mapToResponse(comment);
-        if (comment.getChildren() != null && !comment.getChildren().isEmpty()) {
-            response.setChildren(
-                    comment.getChildren().stream()
-                            .map(this::mapToResponseWithChildren)
-                            .collect(Collectors.toList()));
+    private CommentDto.ThreadResponse loadThread(Long postId, Long parentId, int offset, String sort, int limit,
+            int maxDepth) {
+        // Lay out the levels the page can reach from narrow rows, then load full rows only for what is sent
+        Comparator<CommentNode> order = threadOrder(sort);
+        List<CommentNode> nodes;
+        List<CommentRepository.PathCount> unloaded;
+        if (parentId == null) {
+            int deepest = maxDepth - 1;
+            nodes = commentRepository.findNodesByPostId(postId, deepest);
+            unloaded = commentRepository.countBelowDepthByPostId(postId, deepest, Comment.pathLength(deepest));
+        } else {
+            // Expanding a branch only needs that subtree, one range scan over the path index
+            String path = commentRepository.findPathByIdAndPostId(parentId, postId)
+                    .orElseThrow(() -> new BadRequestException("Invalid continuation token"));
+            String upperBound = Comment.subtreeUpperBound(path);
+            int deepest = path.length() / Comment.pathLength(0) - 1 + maxDepth;
+            nodes = commentRepository.findNodesInSubtree(path, upperBound, deepest);
+            unloaded = commentRepository.countBelowDepthInSubtree(path, upperBound, deepest,
+                    Comment.pathLength(deepest));
         }
-        return response;
+        Map<Long, Integer> unloadedCounts = new HashMap<>();
+        unloaded.forEach(count -> unloadedCounts.put(Comment.idOf(count.getPrefix()), count.getCount().intValue()));
+        CommentThread thread = new CommentThread(nodes, unloadedCounts, order);
+        CommentThread.Selection selection = thread.select(parentId, offset, limit, maxDepth);
+
+        List<Long> ids = selection.getCommentIds();
+        Map<Long, CommentRepository.CommentView> views = ids.isEmpty() ? Map.of()
+                : commentRepository.findViewsByIdIn(ids).stream()
+                        .collect(Collectors.toMap(CommentRepository.CommentView::getId, Function.identity()));
+        Map<Long, Short> userVotes = resolveUserVotes(ids);
+
+        List<CommentDto.Response> comments = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            CommentDto.Response response = mapToResponse(views.get(id), postId, userVotes);
+            int hidden = selection.hiddenReplyCount(id);
+            if (hidden > 0) {
+                response.setHiddenReplyCount(hidden);
+                response.setContinuationToken(
+                        new CommentContinuation(id, selection.shownReplyCount(id)).encode());
+            }
+            comments.add(response);
+        }
+
+        int hidden = selection.hiddenReplyCount(parentId);
+        return CommentDto.ThreadResponse.builder()
+                .comments(CommentTreeBuilder.build(comments))
+                .hiddenCount(hidden > 0 ? hidden : null)
+                .continuationToken(hidden > 0
+                        ? new CommentContinuation(parentId, selection.shownReplyCount(parentId)).encode()
+                        : null)
+                .build();
+    }
+
+    private Comparator<CommentNode> threadOrder(String sort) {
+        Comparator<CommentNode> newest = Comparator.comparing(CommentNode::getCreatedAt).reversed()
+                .thenComparing(CommentNode::getId, Comparator.reverseOrder());
+        Comparator<CommentNode> top = Comparator
+                .comparing((CommentNode node) -> scoreOf(node.getVoteCount()))
+                .reversed()
+                .thenComparing(newest);
+
+        return switch (sort != null ? sort.toLowerCase() : "new") {
+            case "top" -> top;
+            case "best" -> Comparator.comparingDouble(CommentService::confidenceOf).reversed().thenComparing(top);
+            default -> newest;
+        };
+    }
+
+    // Stored counts only; votes still waiting in the aggregator reorder the thread once flushed
+    private static double confidenceOf(CommentNode node) {
+        int upvotes = scoreOf(node.getUpvoteCount());
+        return wilsonLowerBound(upvotes, upvotes - scoreOf(node.getVoteCount()));
     }
 
-    private CommentDto.Response mapToResponse(Comment comment) {
-        Integer userVote = 0;
+    private static int scoreOf(Integer voteCount) {
+        return voteCount != null ? voteCount : 0;
+    }
+
+    // Lower bound of the Wilson score interval at 80% confidence, as used for Reddit's "best"
+    private static double wilsonLowerBound(long upvotes, long downvotes) {
+        long n = upvotes + downvotes;
+        if (n == 0) {
+            return 0;
+        }
+        double z = 1.281551565545;
+        double phat = (double) upvotes / n;
+        return (phat + z * z / (2 * n) - z * Math.sqrt((phat * (1 - phat) + z * z / (4 * n)) / n))
+                / (1 + z * z / n);
+    }
+
+    // One query for the current user's votes on the whole thread instead of one per comment
+    private Map<Long, Short> resolveUserVotes(List<Long> commentIds) {
         Long userId = currentUser.getUserId();
-        if (userId != null) {
-            userVote = voteRepository.findByUserIdAndCommentId(userId, comment.getId())
-                    .map(Vote::getVoteType)
-                    .map(Short::intValue)
-                    .orElse(0);
+        if (userId == null || commentIds.isEmpty()) {
+            return Map.of();
         }
+        return voteRepository.findCommentVoteTypes(userId, commentIds);
+    }
+
+    private CommentDto.Response mapToResponse(CommentRepository.CommentView view, Long postId,
+            Map<Long, Short> userVotes) {
+        Short vote = userVotes.get(view.getId());
+        boolean deleted = Boolean.TRUE.equals(view.getIsDeleted());
+
+        return CommentDto.Response.builder()
+                .id(view.getId())
+                .content(deleted ? "[deleted]" : view.getContent())
+                .voteCount(view.getVoteCount() + voteAggregator.pendingCommentDelta(view.getId()))
+                .depth(view.getDepth())
+                .authorUsername(deleted ? "[deleted]" : view.getAuthorUsername())
+                .authorId(deleted ? null : view.getAuthorId())
+                .authorAvatarUrl(deleted ? null : view.getAuthorAvatarUrl())
+                .postId(postId)
+                .parentId(view.getParentId())
+                .userVote(vote != null ? vote.intValue() : 0)
+                .createdAt(view.getCreatedAt() != null ? view.getCreatedAt().toString() : null)
+                .updatedAt(view.getUpdatedAt() != null ? view.getUpdatedAt().toString() : null)
+                .build();
+    }
+
+    private CommentDto.Response mapToResponse(Comment comment, Map<Long, Short> userVotes) {
+        Short vote = userVotes.get(comment.getId());
+        Integer userVote = vote != null ? vote.intValue() : 0;
 
         return CommentDto.Response.builder()
                 .id(comment.getId())
                 .content(comment.getIsDeleted() ? "[deleted]" : comment.getContent())
-                .voteCount(comment.getVoteCount())
+                .voteCount(comment.getVoteCount() + voteAggregator.pendingCommentDelta(comment.getId()))
                 .depth(comment.getDepth())
                 .authorUsername(comment.getIsDeleted() ? "[deleted]" : comment.getAuthor().getUsername())
                 .authorId(comment.getIsDeleted() ? null : comment.getAuthor().getId())
@@ -0,0 +1,130 @@
+package com.redditclone.service;
+
+import com.redditclone.repository.CommentRepository.CommentNode;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Lightweight layout of a post's comment thread used to pick which comments to
+ * send. Selection follows Reddit's approach: repeatedly take the best-ranked
+ * visible comment across the whole tree until the budget is spent, so a page is
+ * bounded by {@code limit} no matter how large or deep the thread is. Because
+ * siblings are ranked with the same ordering, the replies sent for any parent
+ * are always a prefix of its sorted children, which is what makes a plain
+ * (parent, offset) continuation token sufficient.
+ *
+ * <p>Only the levels a page can reach are laid out; comments below them are
+ * passed in as counts per deepest loaded comment, which is enough to size the
+ * "load more" behind it.
+ */
+public class CommentThread {
+
+    private final Comparator<CommentNode> order;
+    private final Map<Long, List<CommentNode>> children = new HashMap<>();
+    private final Map<Long, Integer> descendantCounts = new HashMap<>();
+    private final Map<Long, Integer> unloadedCounts;
+
+    /**
+     * {@code unloadedCounts} maps a comment of the deepest loaded level to the
+     * number of comments below it that were not loaded.
+     */
+    public CommentThread(List<CommentNode> thread, Map<Long, Integer> unloadedCounts, Comparator<CommentNode> order) {
+        this.order = order;
+        this.unloadedCounts = unloadedCounts;
+        descendantCounts.putAll(unloadedCounts);
+        for (CommentNode node : thread) {
+            children.computeIfAbsent(node.getParentId(), k -> new ArrayList<>()).add(node);
+        }
+        children.values().forEach(list -> list.sort(order));
+
+        // Deepest first, so every child is counted before its parent
+        List<CommentNode> byDepth = new ArrayList<>(thread);
+        byDepth.sort(Comparator.comparingInt(CommentThread::depthOf).reversed());
+        for (CommentNode node : byDepth) {
+            int count = descendantCounts.getOrDefault(node.getId(), 0);
+            if (node.getParentId() != null) {
+                descendantCounts.merge(node.getParentId(), count + 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Picks up to {@code limit} comments below {@code parentId} (null for top level),
+     * skipping its first {@code offset} replies and descending at most
+     * {@code maxDepth} levels.
+     */
+    public Selection select(Long parentId, int offset, int limit, int maxDepth) {
+        List<Long> selected = new ArrayList<>();
+        Map<Long, Integer> shownReplies = new HashMap<>();
+        PriorityQueue<Candidate> queue = new PriorityQueue<>((a, b) -> order.compare(a.node(), b.node()));
+
+        List<CommentNode> start = children.getOrDefault(parentId, List.of());
+        if (offset < start.size()) {
+            queue.add(new Candidate(start, offset, 0));
+        }
+        shownReplies.put(parentId, Math.min(offset, start.size()));
+
+        // Only the next unsent sibling of each list sits in the queue, keeping it O(limit)
+        while (!queue.isEmpty() && selected.size() < limit) {
+            Candidate candidate = queue.poll();
+            CommentNode node = candidate.node();
+            selected.add(node.getId());
+            shownReplies.merge(node.getParentId(), 1, Integer::sum);
+
+            if (candidate.index() + 1 < candidate.siblings().size()) {
+                queue.add(new Candidate(candidate.siblings(), candidate.index() + 1, candidate.level()));
+            }
+            List<CommentNode> replies = children.get(node.getId());
+            if (replies != null && candidate.level() + 1 < maxDepth) {
+                queue.add(new Candidate(replies, 0, candidate.level() + 1));
+            }
+        }
+        return new Selection(selected, shownReplies);
+    }
+
+    private static int depthOf(CommentNode node) {
+        return node.getDepth() != null ? node.getDepth() : 0;
+    }
+
+    private record Candidate(List<CommentNode> siblings, int index, int level) {
+        CommentNode node() {
+            return siblings.get(index);
+        }
+    }
+
+    public class Selection {
+
+        private final List<Long> commentIds;
+        private final Map<Long, Integer> shownReplies;
+
+        private Selection(List<Long> commentIds, Map<Long, Integer> shownReplies) {
+            this.commentIds = commentIds;
+            this.shownReplies = shownReplies;
+        }
+
+        public List<Long> getCommentIds() {
+            return commentIds;
+        }
+
+        /** Replies of {@code parentId} already sent, counting those skipped by the offset. */
+        public int shownReplyCount(Long parentId) {
+            return shownReplies.getOrDefault(parentId, 0);
+        }
+
+        /** Comments, including nested ones, behind the "load more" of {@code parentId}. */
+        public int hiddenReplyCount(Long parentId) {
+            List<CommentNode> replies = children.getOrDefault(parentId, List.of());
+            int hidden = 0;
+            for (int i = shownReplyCount(parentId); i < replies.size(); i++) {
+                hidden += 1 + descendantCounts.getOrDefault(replies.get(i).getId(), 0);
+            }
+            // Replies of the deepest loaded level are never laid out, so all of them are hidden
+            return hidden + unloadedCounts.getOrDefault(parentId, 0);
+        }
+    }
+}
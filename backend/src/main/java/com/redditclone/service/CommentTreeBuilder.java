@@ -0,0 +1,37 @@
+package com.redditclone.service;
+
+import com.redditclone.dto.CommentDto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assembles flat comment rows into a reply tree by parentId in a single pass.
+ * Comments whose parent is not in the list become roots, and sibling order
+ * follows the order of the input list.
+ */
+public final class CommentTreeBuilder {
+
+    private CommentTreeBuilder() {
+    }
+
+    public static List<CommentDto.Response> build(List<CommentDto.Response> comments) {
+        Map<Long, CommentDto.Response> byId = new HashMap<>(comments.size() * 2);
+        for (CommentDto.Response comment : comments) {
+            byId.put(comment.getId(), comment);
+        }
+
+        List<CommentDto.Response> roots = new ArrayList<>();
+        for (CommentDto.Response comment : comments) {
+            CommentDto.Response parent = comment.getParentId() != null ? byId.get(comment.getParentId()) : null;
+            if (parent != null) {
+                parent.getChildren().add(comment);
+            } else {
+                roots.add(comment);
+            }
+        }
+        return roots;
+    }
+}
@@ -0,0 +1,63 @@
+package com.redditclone.service;
+
+import com.redditclone.exception.BadRequestException;
+import com.redditclone.model.Post;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position in a post feed: the sort key and id of the last post
+ * returned, so the next page starts right after it instead of at an OFFSET.
+ */
+public record FeedCursor(String sort, String key, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static FeedCursor after(String sort, Post post) {
+        String key = switch (sort) {
+            case "new" -> post.getCreatedAt().toString();
+            case "top" -> post.getVoteCount().toString();
+            default -> post.getHotScore().toString();
+        };
+        return new FeedCursor(sort, key, post.getId());
+    }
+
+    public static FeedCursor decode(String cursor, String expectedSort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 3);
+            if (parts.length != 3 || !parts[0].equals(expectedSort)) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            FeedCursor feedCursor = new FeedCursor(parts[0], parts[1], Long.parseLong(parts[2]));
+            switch (feedCursor.sort()) {
+                case "new" -> feedCursor.createdAt();
+                case "top" -> feedCursor.voteCount();
+                default -> feedCursor.hotScore();
+            }
+            return feedCursor;
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = sort + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public double hotScore() {
+        return Double.parseDouble(key);
+    }
+
+    public int voteCount() {
+        return Integer.parseInt(key);
+    }
+
+    public LocalDateTime createdAt() {
+        return LocalDateTime.parse(key);
+    }
+}
@@ -0,0 +1,30 @@
+package com.redditclone.service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Hot/new/top orderings of post ids for the global feed and each subreddit,
+ * kept up to date from post and vote events after commit. Implementations
+ * may hold only the head of each ordering.
+ */
+public interface FeedRanking {
+
+    record PostAdded(Long postId, Long subredditId, LocalDateTime createdAt) {
+    }
+
+    record PostRemoved(Long postId, Long subredditId) {
+    }
+
+    /** Post ids of one page, and the cursor for the page after it (null on the last page). */
+    record Window(long[] ids, String nextCursor) {
+    }
+
+    /**
+     * The ids for a page of the given feed, or empty when the ranking is not
+     * loaded yet or does not hold enough of the ordering to answer it; callers
+     * then fall back to the keyset queries with the same cursor.
+     * {@code subredditId} is null for the global feed.
+     */
+    Optional<Window> window(Long subredditId, String sort, String cursor, int size);
+}
@@ -0,0 +1,69 @@
+package com.redditclone.service;
+
+import com.redditclone.model.Post;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+/**
+ * Score encoding shared by the {@link FeedRanking} implementations. Cursors
+ * they hand out use the regular {@link FeedCursor} format, so a page past the
+ * end of a ranking can continue on the keyset queries.
+ */
+final class FeedRankings {
+
+    // Every post within the first `limit` of its subreddit by any ordering; the
+    // global top N by an ordering is always a subset of its per-subreddit top Ns
+    static final String LOAD_SQL =
+            "SELECT id, subreddit_id, vote_count, created_at, total FROM (" +
+            "SELECT id, subreddit_id, vote_count, created_at, " +
+            "COUNT(*) OVER (PARTITION BY subreddit_id) AS total, " +
+            "ROW_NUMBER() OVER (PARTITION BY subreddit_id ORDER BY hot_score DESC, id DESC) AS hot_rank, " +
+            "ROW_NUMBER() OVER (PARTITION BY subreddit_id ORDER BY created_at DESC, id DESC) AS new_rank, " +
+            "ROW_NUMBER() OVER (PARTITION BY subreddit_id ORDER BY vote_count DESC, id DESC) AS top_rank " +
+            "FROM posts WHERE is_deleted = FALSE) ranked " +
+            "WHERE hot_rank <= ? OR new_rank <= ? OR top_rank <= ?";
+
+    private FeedRankings() {
+    }
+
+    // Current rows of a few live posts, for changes that raced a rebuild
+    static String postsByIdSql(int posts) {
+        return "SELECT id, subreddit_id, vote_count, created_at FROM posts WHERE is_deleted = FALSE AND id IN (" +
+                String.join(", ", Collections.nCopies(posts, "?")) + ")";
+    }
+
+    static double score(String sort, int voteCount, LocalDateTime createdAt) {
+        return switch (sort) {
+            case "new" -> createdMicros(createdAt);
+            case "top" -> voteCount;
+            default -> Post.computeHotScore(voteCount, createdAt);
+        };
+    }
+
+    static double cursorScore(FeedCursor cursor) {
+        return switch (cursor.sort()) {
+            case "new" -> createdMicros(cursor.createdAt());
+            case "top" -> cursor.voteCount();
+            default -> cursor.hotScore();
+        };
+    }
+
+    static String nextCursor(String sort, double score, long id) {
+        String key = switch (sort) {
+            case "new" -> {
+                long micros = (long) score;
+                yield LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                        (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC).toString();
+            }
+            case "top" -> Integer.toString((int) score);
+            default -> Double.toString(score);
+        };
+        return new FeedCursor(sort, key, id).encode();
+    }
+
+    static long createdMicros(LocalDateTime createdAt) {
+        return createdAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + createdAt.getNano() / 1_000;
+    }
+}
@@ -0,0 +1,110 @@
+package com.redditclone.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redditclone.dto.CursorPage;
+import com.redditclone.dto.PostDto;
+import com.redditclone.model.Subreddit;
+import com.redditclone.repository.SubredditRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * The first few pages of the global feed and of the largest subreddits, as a
+ * logged-out visitor sees them, kept as ready-to-send JSON. Pages are keyed by
+ * the cursor that leads to them, so a client following nextCursor stays on
+ * snapshots until it runs past the last materialized page. The whole set is
+ * rebuilt on a schedule and swapped in at once.
+ */
+@Component
+@Slf4j
+public class FeedSnapshots {
+
+    private static final List<String> SORTS = List.of("hot", "new", "top");
+
+    /** Serialized page body and its strong ETag. */
+    public record Snapshot(byte[] body, String etag) {
+    }
+
+    private final PostService postService;
+    private final SubredditRepository subredditRepository;
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+    private final int pages;
+    private final int subreddits;
+
+    private volatile Map<String, Snapshot> snapshots = Map.of();
+
+    public FeedSnapshots(PostService postService, SubredditRepository subredditRepository, ObjectMapper objectMapper,
+            @Value("${feeds.snapshot.page-size}") int pageSize,
+            @Value("${feeds.snapshot.pages}") int pages,
+            @Value("${feeds.snapshot.subreddits}") int subreddits) {
+        this.postService = postService;
+        this.subredditRepository = subredditRepository;
+        this.objectMapper = objectMapper;
+        this.pageSize = pageSize;
+        this.pages = pages;
+        this.subreddits = subreddits;
+    }
+
+    /** {@code subredditId} is null for the global feed. */
+    public Optional<Snapshot> find(Long subredditId, String sort, String cursor, int size) {
+        if (size != pageSize) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(snapshots.get(key(subredditId, sort, cursor)));
+    }
+
+    @Scheduled(fixedDelayString = "${feeds.snapshot.refresh-interval-ms}")
+    public void refresh() {
+        try {
+            List<Long> scopes = new ArrayList<>();
+            scopes.add(null);
+            scopes.addAll(subredditRepository.findTopByMemberCount(PageRequest.of(0, subreddits)).stream()
+                    .map(Subreddit::getId)
+                    .collect(Collectors.toList()));
+
+            Map<String, Snapshot> next = new HashMap<>();
+            for (Long subredditId : scopes) {
+                for (String sort : SORTS) {
+                    materialize(subredditId, sort, next);
+                }
+            }
+            snapshots = Map.copyOf(next);
+        } catch (RuntimeException | JsonProcessingException ex) {
+            // Keep serving the previous set; requests fall through to PostService if it is empty
+            log.warn("Feed snapshot refresh failed: {}", ex.getMessage());
+        }
+    }
+
+    private void materialize(Long subredditId, String sort, Map<String, Snapshot> into)
+            throws JsonProcessingException {
+        String cursor = null;
+        for (int page = 0; page < pages; page++) {
+            CursorPage<PostDto.Response> content = postService.getAnonymousFeed(subredditId, sort, cursor, pageSize);
+            byte[] body = objectMapper.writeValueAsBytes(content);
+            into.put(key(subredditId, sort, cursor), new Snapshot(body, DigestUtils.md5DigestAsHex(body)));
+            if (!content.isHasNext()) {
+                return;
+            }
+            cursor = content.getNextCursor();
+        }
+    }
+
+    private static String key(Long subredditId, String sort, String cursor) {
+        String sortKey = sort != null ? sort.toLowerCase() : "hot";
+        return (subredditId != null ? subredditId : "all") + "|" + sortKey + "|"
+                + (cursor != null ? cursor : "");
+    }
+}
@@ -0,0 +1,77 @@
+package com.redditclone.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Eventually consistent author karma. Votes publish a {@link KarmaDelta} and
+ * never touch {@code users}; deltas are coalesced per user and source here and
+ * written in one batch every {@code karma.flush-interval-ms}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KarmaLedger {
+
+    private static final String UPDATE_KARMA =
+            "UPDATE users SET karma = karma + ?, post_karma = post_karma + ?, " +
+            "comment_karma = comment_karma + ? WHERE id = ?";
+
+    public enum Source {
+        POST,
+        COMMENT
+    }
+
+    public record KarmaDelta(Long userId, Source source, int delta) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private final WriteBehindBuffer postKarma = new WriteBehindBuffer();
+    private final WriteBehindBuffer commentKarma = new WriteBehindBuffer();
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onKarmaDelta(KarmaDelta event) {
+        (event.source() == Source.POST ? postKarma : commentKarma).add(event.userId(), event.delta());
+    }
+
+    @Scheduled(fixedDelayString = "${karma.flush-interval-ms}")
+    @PreDestroy
+    public synchronized void flush() {
+        try {
+            WriteBehindBuffer.flush(transactionManager, () -> jdbcTemplate.batchUpdate(UPDATE_KARMA, toArgs()),
+                    postKarma, commentKarma);
+        } catch (RuntimeException ex) {
+            log.error("Karma flush failed for {} users, retrying",
+                    postKarma.inFlight().size() + commentKarma.inFlight().size(), ex);
+        }
+    }
+
+    // One row per user carrying both sources; sorted ids keep row lock order stable across batches
+    private List<Object[]> toArgs() {
+        Map<Long, Long> post = postKarma.inFlight();
+        Map<Long, Long> comment = commentKarma.inFlight();
+        TreeSet<Long> userIds = new TreeSet<>(post.keySet());
+        userIds.addAll(comment.keySet());
+        List<Object[]> args = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            long postDelta = post.getOrDefault(userId, 0L);
+            long commentDelta = comment.getOrDefault(userId, 0L);
+            args.add(new Object[]{postDelta + commentDelta, postDelta, commentDelta, userId});
+        }
+        return args;
+    }
+}
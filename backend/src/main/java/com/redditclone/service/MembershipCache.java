@@ -0,0 +1,123 @@
+package com.redditclone.service;
+
+import com.redditclone.repository.SubredditMembershipRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Each user's joined subreddit ids as a Redis set, so a listing can fill every
+ * isMember flag from one SMEMBERS. A set counts as loaded only when it holds
+ * the sentinel member, which also tells an empty membership from a missing set.
+ *
+ * <p>Join and leave only invalidate: after commit they bump the user's version
+ * and drop the set. A load notes the version before reading the database and
+ * writes its set only if the version is unchanged, so a change that commits
+ * while a load is in progress cannot be overwritten by that load.
+ */
+@Component
+@Slf4j
+public class MembershipCache {
+
+    private static final String KEY_PREFIX = "subreddit:joined:{";
+    private static final String LOADED = "loaded";
+
+    // KEYS: set, version. ARGV: version the load started from, ttl seconds, members...
+    private static final RedisScript<Long> STORE = new DefaultRedisScript<>("""
+            if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then
+              return 0
+            end
+            redis.call('DEL', KEYS[1])
+            redis.call('SADD', KEYS[1], unpack(ARGV, 3))
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    // KEYS: set, version. ARGV: ttl seconds. The version outlives any set loaded before it changed.
+    private static final RedisScript<Long> INVALIDATE = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[1])
+            return redis.call('DEL', KEYS[1])
+            """, Long.class);
+
+    public record Change(Long userId, Long subredditId, boolean joined) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final SubredditMembershipRepository membershipRepository;
+    private final Duration ttl;
+
+    public MembershipCache(StringRedisTemplate redisTemplate, SubredditMembershipRepository membershipRepository,
+            @Value("${subreddits.membership-cache-ttl-ms}") long ttlMs) {
+        this.redisTemplate = redisTemplate;
+        this.membershipRepository = membershipRepository;
+        this.ttl = Duration.ofMillis(ttlMs);
+    }
+
+    public Set<Long> subredditIdsOf(Long userId) {
+        if (userId == null) {
+            return Set.of();
+        }
+        List<String> keys = keys(userId);
+        String version;
+        try {
+            Set<String> members = redisTemplate.opsForSet().members(keys.get(0));
+            if (members != null && members.contains(LOADED)) {
+                return members.stream()
+                        .filter(member -> !LOADED.equals(member))
+                        .map(Long::valueOf)
+                        .collect(Collectors.toSet());
+            }
+            version = Optional.ofNullable(redisTemplate.opsForValue().get(keys.get(1))).orElse("0");
+        } catch (RuntimeException ex) {
+            log.warn("Membership cache read failed for user {}: {}", userId, ex.getMessage());
+            return new HashSet<>(membershipRepository.findSubredditIdsByUserId(userId));
+        }
+        return load(keys, userId, version);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onChange(Change change) {
+        try {
+            redisTemplate.execute(INVALIDATE, keys(change.userId()), String.valueOf(ttl.toSeconds()));
+        } catch (RuntimeException ex) {
+            // Nothing else to try against a Redis that just failed; the set expires with its TTL
+            log.warn("Membership cache invalidation failed for user {}: {}", change.userId(), ex.getMessage());
+        }
+    }
+
+    private Set<Long> load(List<String> keys, Long userId, String version) {
+        List<Long> ids = membershipRepository.findSubredditIdsByUserId(userId);
+        try {
+            String[] args = new String[ids.size() + 3];
+            args[0] = version;
+            args[1] = String.valueOf(ttl.toSeconds());
+            args[2] = LOADED;
+            for (int i = 0; i < ids.size(); i++) {
+                args[i + 3] = ids.get(i).toString();
+            }
+            redisTemplate.execute(STORE, keys, (Object[]) args);
+        } catch (RuntimeException ex) {
+            log.warn("Membership cache load failed for user {}: {}", userId, ex.getMessage());
+        }
+        return new HashSet<>(ids);
+    }
+
+    // Set and version share a hash tag, so the scripts stay within one slot on Redis Cluster
+    private static List<String> keys(Long userId) {
+        String base = KEY_PREFIX + userId + "}";
+        return List.of(base, base + ":version");
+    }
+}
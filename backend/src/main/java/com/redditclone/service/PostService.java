@@ -1,30 +1,54 @@
 package com.redditclone.service;
 
+import com.redditclone.cache.CacheNames;
+import com.redditclone.cache.SingleFlightLoader;
+import com.redditclone.dto.CursorPage;
 import com.redditclone.dto.PostDto;
 import com.redditclone.exception.BadRequestException;
 import com.redditclone.exception.ResourceNotFoundException;
 import com.redditclone.model.Post;
 import com.redditclone.model.Subreddit;
 import com.redditclone.model.User;
-import com.redditclone.model.Vote;
 import com.redditclone.repository.PostRepository;
 import com.redditclone.repository.SubredditRepository;
 import com.redditclone.repository.VoteRepository;
+import com.redditclone.search.SearchDocument;
+import com.redditclone.search.SearchIndexEvent;
 import com.redditclone.security.CurrentUser;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class PostService {
 
     private final PostRepository postRepository;
     private final SubredditRepository subredditRepository;
     private final VoteRepository voteRepository;
     private final CurrentUser currentUser;
+    private final ApplicationEventPublisher eventPublisher;
+    private final VoteAggregator voteAggregator;
+    private final ShardedCounters shardedCounters;
+    private final CacheManager cacheManager;
+    private final SingleFlightLoader singleFlightLoader;
+    private final FeedRanking feedRanking;
 
     @Transactional
     public PostDto.Response create(PostDto.CreateRequest request) {
@@ -43,49 +67,69 @@ public class PostService {
                 .build();
 
         post = postRepository.save(post);
-        return mapToResponse(post);
+        eventPublisher.publishEvent(SearchIndexEvent.upsert(SearchDocument.of(post)));
+        eventPublisher.publishEvent(new FeedRanking.PostAdded(post.getId(), subreddit.getId(), post.getCreatedAt()));
+        return mapToResponse(post, Map.of(), Map.of());
     }
 
+    /**
+     * The cached response is shared by every viewer, so it is built without a
+     * user vote and copied before the current user's vote is filled in.
+     */
     @Transactional(readOnly = true)
     public PostDto.Response getById(Long id) {
-        Post post = postRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
-        if (post.getIsDeleted()) {
-            throw new ResourceNotFoundException("Post", "id", id);
+        PostDto.Response response = singleFlightLoader.get(CacheNames.POSTS, id, () -> {
+            Post post = postRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
+            if (post.getIsDeleted()) {
+                throw new ResourceNotFoundException("Post", "id", id);
+            }
+            return mapToResponse(post, Map.of(), commentShards(List.of(post)));
+        });
+
+        Long userId = currentUser.getUserId();
+        if (userId == null) {
+            return response;
         }
-        return mapToResponse(post);
+        return withUserVote(response, voteRepository.findPostVoteTypes(userId, List.of(id)));
     }
 
+    /**
+     * The first page of each sort is shared by every viewer and loaded through
+     * the single-flight cache. Deeper pages are resolved per request: from the
+     * feed ranking when it can answer them, otherwise from the keyset queries.
+     */
     @Transactional(readOnly = true)
-    public Page<PostDto.Response> getFeed(String sort, Pageable pageable) {
-        Page<Post> posts = switch (sort != null ? sort.toLowerCase() : "hot") {
-            case "new" -> postRepository.findNewPosts(pageable);
-            case "top" -> postRepository.findTopPosts(pageable);
-            default -> postRepository.findHotPosts(pageable);
-        };
-        return posts.map(this::mapToResponse);
+    public CursorPage<PostDto.Response> getFeed(String sort, String cursor, int size) {
+        String sortKey = normalizeSort(sort);
+        if (cursor == null || cursor.isBlank()) {
+            CursorPage<PostDto.Response> page = singleFlightLoader.get(CacheNames.FEEDS, sortKey + ":" + size,
+                    () -> loadFeedPage(null, sortKey, null, size, false));
+            return withUserVotes(page);
+        }
+        return loadFeedPage(null, sortKey, cursor, size, true);
     }
 
     @Transactional(readOnly = true)
-    public Page<PostDto.Response> getBySubreddit(Long subredditId, String sort, Pageable pageable) {
-        Page<Post> posts = switch (sort != null ? sort.toLowerCase() : "hot") {
-            case "new" -> postRepository.findNewPostsBySubreddit(subredditId, pageable);
-            case "top" -> postRepository.findTopPostsBySubreddit(subredditId, pageable);
-            default -> postRepository.findHotPostsBySubreddit(subredditId, pageable);
-        };
-        return posts.map(this::mapToResponse);
+    public CursorPage<PostDto.Response> getBySubreddit(Long subredditId, String sort, String cursor, int size) {
+        return loadFeedPage(subredditId, normalizeSort(sort), cursor, size, true);
     }
 
+    /**
+     * A feed page as a logged-out visitor sees it, read straight from the
+     * database. {@code subredditId} is null for the global feed.
+     */
     @Transactional(readOnly = true)
-    public Page<PostDto.Response> getByAuthor(Long authorId, Pageable pageable) {
-        return postRepository.findByAuthorIdAndIsDeletedFalse(authorId, pageable)
-                .map(this::mapToResponse);
+    public CursorPage<PostDto.Response> getAnonymousFeed(Long subredditId, String sort, String cursor, int size) {
+        return loadFeedPage(subredditId, normalizeSort(sort), cursor, size, false);
     }
 
     @Transactional(readOnly = true)
-    public Page<PostDto.Response> search(String query, Pageable pageable) {
-        return postRepository.searchPosts(query, pageable)
-                .map(this::mapToResponse);
+    public Page<PostDto.Response> getByAuthor(Long authorId, Pageable pageable) {
+        Page<Post> posts = postRepository.findByAuthorIdAndIsDeletedFalse(authorId, pageable);
+        Map<Long, Short> userVotes = resolveUserVotes(posts.getContent());
+        Map<Long, Integer> shards = commentShards(posts.getContent());
+        return posts.map(post -> mapToResponse(post, userVotes, shards));
     }
 
     @Transactional
@@ -104,7 +148,9 @@ public class PostService {
             post.setUrl(request.getUrl());
 
         post = postRepository.save(post);
-        return mapToResponse(post);
+        eventPublisher.publishEvent(SearchIndexEvent.upsert(SearchDocument.of(post)));
+        cacheManager.getCache(CacheNames.POSTS).evict(id);
+        return mapToResponse(post, resolveUserVotes(List.of(post)), commentShards(List.of(post)));
     }
 
     @Transactional
@@ -119,17 +165,144 @@ public class PostService {
 
         post.setIsDeleted(true);
         postRepository.save(post);
+        eventPublisher.publishEvent(SearchIndexEvent.delete(SearchDocument.Type.POST, id));
+        eventPublisher.publishEvent(new FeedRanking.PostRemoved(id, post.getSubreddit().getId()));
+        cacheManager.getCache(CacheNames.POSTS).evict(id);
     }
 
-    private PostDto.Response mapToResponse(Post post) {
-        Integer userVote = 0;
+    // Ids come from the feed ranking when it can answer the page, otherwise from the keyset queries
+    private CursorPage<PostDto.Response> loadFeedPage(Long subredditId, String sortKey, String cursor, int size,
+            boolean withUserVotes) {
+        Optional<FeedRanking.Window> window = rankedWindow(subredditId, sortKey, cursor, size);
+        if (window.isEmpty()) {
+            Slice<Post> posts = loadFeedSlice(subredditId, sortKey, cursor, size);
+            return toCursorPage(sortKey, posts, withUserVotes ? resolveUserVotes(posts.getContent()) : Map.of());
+        }
+
+        List<Long> ids = Arrays.stream(window.get().ids()).boxed().collect(Collectors.toList());
+        Map<Long, Post> byId = postRepository.findAllById(ids).stream()
+                .filter(post -> !post.getIsDeleted())
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> posts = ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+        Map<Long, Short> userVotes = withUserVotes ? resolveUserVotes(posts) : Map.of();
+        Map<Long, Integer> shards = commentShards(posts);
+        return CursorPage.<PostDto.Response>builder()
+                .content(posts.stream()
+                        .map(post -> mapToResponse(post, userVotes, shards))
+                        .collect(Collectors.toList()))
+                .nextCursor(window.get().nextCursor())
+                .hasNext(window.get().nextCursor() != null)
+                .build();
+    }
+
+    // The ranking is an accelerator; if its store is down the keyset queries still answer
+    private Optional<FeedRanking.Window> rankedWindow(Long subredditId, String sortKey, String cursor, int size) {
+        try {
+            return feedRanking.window(subredditId, sortKey, cursor, size);
+        } catch (RuntimeException ex) {
+            log.warn("Feed ranking unavailable, falling back to the database: {}", ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Slice<Post> loadFeedSlice(Long subredditId, String sortKey, String cursor, int size) {
+        Pageable pageable = PageRequest.ofSize(size);
+        if (cursor == null || cursor.isBlank()) {
+            if (subredditId == null) {
+                return switch (sortKey) {
+                    case "new" -> postRepository.findNewPosts(pageable);
+                    case "top" -> postRepository.findTopPosts(pageable);
+                    default -> postRepository.findHotPosts(pageable);
+                };
+            }
+            return switch (sortKey) {
+                case "new" -> postRepository.findNewPostsBySubreddit(subredditId, pageable);
+                case "top" -> postRepository.findTopPostsBySubreddit(subredditId, pageable);
+                default -> postRepository.findHotPostsBySubreddit(subredditId, pageable);
+            };
+        }
+
+        FeedCursor after = FeedCursor.decode(cursor, sortKey);
+        if (subredditId == null) {
+            return switch (sortKey) {
+                case "new" -> postRepository.findNewPostsAfter(after.createdAt(), after.id(), pageable);
+                case "top" -> postRepository.findTopPostsAfter(after.voteCount(), after.id(), pageable);
+                default -> postRepository.findHotPostsAfter(after.hotScore(), after.id(), pageable);
+            };
+        }
+        return switch (sortKey) {
+            case "new" -> postRepository.findNewPostsBySubredditAfter(
+                    subredditId, after.createdAt(), after.id(), pageable);
+            case "top" -> postRepository.findTopPostsBySubredditAfter(
+                    subredditId, after.voteCount(), after.id(), pageable);
+            default -> postRepository.findHotPostsBySubredditAfter(
+                    subredditId, after.hotScore(), after.id(), pageable);
+        };
+    }
+
+    private String normalizeSort(String sort) {
+        String sortKey = sort != null ? sort.toLowerCase() : "hot";
+        return switch (sortKey) {
+            case "new", "top" -> sortKey;
+            default -> "hot";
+        };
+    }
+
+    private CursorPage<PostDto.Response> toCursorPage(String sort, Slice<Post> posts, Map<Long, Short> userVotes) {
+        List<Post> content = posts.getContent();
+        Map<Long, Integer> shards = commentShards(content);
+        String nextCursor = posts.hasNext() && !content.isEmpty()
+                ? FeedCursor.after(sort, content.get(content.size() - 1)).encode()
+                : null;
+        return CursorPage.<PostDto.Response>builder()
+                .content(content.stream()
+                        .map(post -> mapToResponse(post, userVotes, shards))
+                        .collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasNext(nextCursor != null)
+                .build();
+    }
+
+    // One query for the current user's votes on a whole page instead of one per post
+    private Map<Long, Short> resolveUserVotes(List<Post> posts) {
+        Long userId = currentUser.getUserId();
+        if (userId == null || posts.isEmpty()) {
+            return Map.of();
+        }
+        return voteRepository.findPostVoteTypes(userId, posts.stream().map(Post::getId).collect(Collectors.toList()));
+    }
+
+    // Comment counts still sitting in counter shards, for the whole page at once
+    private Map<Long, Integer> commentShards(List<Post> posts) {
+        return shardedCounters.shardTotals(ShardedCounters.Counter.POST_COMMENTS,
+                posts.stream().map(Post::getId).collect(Collectors.toList()));
+    }
+
+    // Cached pages are shared across viewers, so votes are filled in on copies
+    private CursorPage<PostDto.Response> withUserVotes(CursorPage<PostDto.Response> page) {
         Long userId = currentUser.getUserId();
-        if (userId != null) {
-            userVote = voteRepository.findByUserIdAndPostId(userId, post.getId())
-                    .map(Vote::getVoteType)
-                    .map(Short::intValue)
-                    .orElse(0);
+        if (userId == null || page.getContent().isEmpty()) {
+            return page;
         }
+        Map<Long, Short> userVotes = voteRepository.findPostVoteTypes(userId,
+                page.getContent().stream().map(PostDto.Response::getId).collect(Collectors.toList()));
+        return CursorPage.<PostDto.Response>builder()
+                .content(page.getContent().stream()
+                        .map(post -> withUserVote(post, userVotes))
+                        .collect(Collectors.toList()))
+                .nextCursor(page.getNextCursor())
+                .hasNext(page.isHasNext())
+                .build();
+    }
+
+    private PostDto.Response withUserVote(PostDto.Response post, Map<Long, Short> userVotes) {
+        Short vote = userVotes.get(post.getId());
+        return post.toBuilder().userVote(vote != null ? vote.intValue() : 0).build();
+    }
+
+    private PostDto.Response mapToResponse(Post post, Map<Long, Short> userVotes, Map<Long, Integer> commentShards) {
+        Short vote = userVotes.get(post.getId());
+        Integer userVote = vote != null ? vote.intValue() : 0;
 
         return PostDto.Response.builder()
                 .id(post.getId())
@@ -138,8 +311,8 @@ public class PostService {
                 .url(post.getUrl())
                 .imageUrl(post.getImageUrl())
                 .postType(post.getPostType())
-                .voteCount(post.getVoteCount())
-                .commentCount(post.getCommentCount())
+                .voteCount(post.getVoteCount() + voteAggregator.pendingPostDelta(post.getId()))
+                .commentCount(post.getCommentCount() + commentShards.getOrDefault(post.getId(), 0))
                 .isLocked(post.getIsLocked())
                 .subredditName(post.getSubreddit().getName())
                 .subredditId(post.getSubreddit().getId())
@@ -0,0 +1,382 @@
+package com.redditclone.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * In-memory hot/new/top orderings for the global feed and every subreddit,
+ * each holding at most {@code ranking.capacity} post ids in primitive arrays
+ * sorted by (score, id) descending. Feed pages are cut from these arrays and
+ * the rows loaded by id, so Postgres never sorts for them.
+ *
+ * <p>The index is rebuilt from the database at startup and on a schedule;
+ * between rebuilds it follows post creation, deletion and votes after commit.
+ * A post that is in no ranking when it is voted on is only picked up by the
+ * next rebuild. Any page the arrays cannot fully answer returns empty and the
+ * caller falls back to the keyset queries.
+ *
+ * <p>Events that arrive while a rebuild is loading are applied to the live
+ * state as usual and also replayed onto the rebuilt one before it is
+ * published, so the swap does not lose them.
+ */
+@Component
+@ConditionalOnProperty(name = "ranking.store", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class RankingIndex implements FeedRanking {
+
+    private static final long GLOBAL = 0L;
+
+    private record Meta(long subredditId, LocalDateTime createdAt, int voteCount) {
+
+        double score(String sort) {
+            return FeedRankings.score(sort, voteCount, createdAt);
+        }
+    }
+
+    private record Scope(Ranking hot, Ranking recent, Ranking top) {
+
+        Ranking get(String sort) {
+            return switch (sort) {
+                case "new" -> recent;
+                case "top" -> top;
+                default -> hot;
+            };
+        }
+    }
+
+    private record State(Map<Long, Scope> scopes, Map<Long, Meta> posts) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VoteAggregator voteAggregator;
+    private final int capacity;
+
+    private volatile State state;
+
+    private final Object rebuildLock = new Object();
+    // Events seen since the running rebuild started loading; null when none is running
+    private List<Object> missedEvents;
+
+    public RankingIndex(JdbcTemplate jdbcTemplate, VoteAggregator voteAggregator,
+            @Value("${ranking.capacity}") int capacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.voteAggregator = voteAggregator;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public Optional<Window> window(Long subredditId, String sort, String cursor, int size) {
+        State current = state;
+        if (current == null) {
+            return Optional.empty();
+        }
+        Scope scope = current.scopes().get(subredditId != null ? subredditId : GLOBAL);
+        if (scope == null) {
+            // Rebuilt since the subreddit's last post was removed, or it has none yet
+            return Optional.of(new Window(new long[0], null));
+        }
+        Ranking ranking = scope.get(sort);
+        if (cursor == null || cursor.isBlank()) {
+            return Optional.ofNullable(ranking.window(sort, Double.NaN, 0L, size));
+        }
+        FeedCursor after = FeedCursor.decode(cursor, sort);
+        return Optional.ofNullable(ranking.window(sort, FeedRankings.cursorScore(after), after.id(), size));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${ranking.rebuild-interval-ms}",
+            fixedDelayString = "${ranking.rebuild-interval-ms}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (rebuildLock) {
+            missedEvents = new ArrayList<>();
+        }
+        try {
+            State rebuilt = load();
+            synchronized (rebuildLock) {
+                replay(rebuilt, missedEvents);
+                state = rebuilt;
+            }
+            log.info("Ranking index rebuilt: {} posts in {} scopes in {} ms",
+                    rebuilt.posts().size(), rebuilt.scopes().size(), System.currentTimeMillis() - start);
+        } finally {
+            synchronized (rebuildLock) {
+                missedEvents = null;
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPostAdded(PostAdded event) {
+        State current = track(event);
+        if (current != null) {
+            addPost(current, event);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPostRemoved(PostRemoved event) {
+        State current = track(event);
+        if (current != null) {
+            removePost(current, event);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onVote(VoteAggregator.VoteDelta vote) {
+        if (vote.postId() == null || vote.delta() == 0) {
+            return;
+        }
+        State current = track(vote);
+        if (current != null) {
+            updateVotes(current, vote.postId(), votes -> votes + vote.delta());
+        }
+    }
+
+    private State load() {
+        Map<Long, Meta> posts = new ConcurrentHashMap<>();
+        Map<Long, Long> totals = new HashMap<>();
+        jdbcTemplate.query(FeedRankings.LOAD_SQL, rs -> {
+            long id = rs.getLong("id");
+            long subredditId = rs.getLong("subreddit_id");
+            int votes = rs.getInt("vote_count") + voteAggregator.pendingPostDelta(id);
+            posts.put(id, new Meta(subredditId, rs.getTimestamp("created_at").toLocalDateTime(), votes));
+            totals.put(subredditId, rs.getLong("total"));
+        }, capacity, capacity, capacity);
+
+        Map<Long, List<Long>> idsByScope = new HashMap<>();
+        posts.forEach((id, meta) -> {
+            idsByScope.computeIfAbsent(GLOBAL, k -> new ArrayList<>()).add(id);
+            idsByScope.computeIfAbsent(meta.subredditId(), k -> new ArrayList<>()).add(id);
+        });
+        long globalTotal = totals.values().stream().mapToLong(Long::longValue).sum();
+
+        Map<Long, Scope> scopes = new ConcurrentHashMap<>();
+        idsByScope.forEach((scopeId, ids) -> {
+            boolean complete = (scopeId == GLOBAL ? globalTotal : totals.get(scopeId)) <= capacity;
+            scopes.put(scopeId, new Scope(
+                    build(ids, id -> posts.get(id).score("hot"), complete),
+                    build(ids, id -> posts.get(id).score("new"), complete),
+                    build(ids, id -> posts.get(id).score("top"), complete)));
+        });
+        return new State(scopes, posts);
+    }
+
+    // The state to apply the event to now; during a rebuild the event is also kept for replay
+    private State track(Object event) {
+        synchronized (rebuildLock) {
+            if (missedEvents != null) {
+                missedEvents.add(event);
+            }
+            return state;
+        }
+    }
+
+    private void replay(State rebuilt, List<Object> events) {
+        Set<Long> voted = new HashSet<>();
+        for (Object event : events) {
+            if (event instanceof PostAdded added) {
+                addPost(rebuilt, added);
+            } else if (event instanceof PostRemoved removed) {
+                removePost(rebuilt, removed);
+            } else if (event instanceof VoteAggregator.VoteDelta vote) {
+                voted.add(vote.postId());
+            }
+        }
+        // The load may already include some of these votes, so counts are re-read rather than re-added
+        voted.retainAll(rebuilt.posts().keySet());
+        if (!voted.isEmpty()) {
+            jdbcTemplate.query(FeedRankings.postsByIdSql(voted.size()), rs -> {
+                long id = rs.getLong("id");
+                int votes = rs.getInt("vote_count") + voteAggregator.pendingPostDelta(id);
+                updateVotes(rebuilt, id, previous -> votes);
+            }, voted.toArray());
+        }
+    }
+
+    private void addPost(State current, PostAdded event) {
+        // Already present when the rebuild's load saw the post; keep its vote count then
+        Meta meta = current.posts().computeIfAbsent(event.postId(),
+                id -> new Meta(event.subredditId(), event.createdAt(), 0));
+        for (long scopeId : new long[]{GLOBAL, event.subredditId()}) {
+            // A scope missing from the last rebuild had no posts, so starting it empty is exact
+            Scope scope = current.scopes().computeIfAbsent(scopeId, k -> emptyScope());
+            upsert(scope, event.postId(), meta);
+        }
+    }
+
+    private void removePost(State current, PostRemoved event) {
+        current.posts().remove(event.postId());
+        for (long scopeId : new long[]{GLOBAL, event.subredditId()}) {
+            Scope scope = current.scopes().get(scopeId);
+            if (scope != null) {
+                scope.hot().remove(event.postId());
+                scope.recent().remove(event.postId());
+                scope.top().remove(event.postId());
+            }
+        }
+    }
+
+    private void updateVotes(State current, long postId, IntUnaryOperator votes) {
+        Meta meta = current.posts().computeIfPresent(postId,
+                (id, m) -> new Meta(m.subredditId(), m.createdAt(), votes.applyAsInt(m.voteCount())));
+        if (meta == null) {
+            return;
+        }
+        for (long scopeId : new long[]{GLOBAL, meta.subredditId()}) {
+            Scope scope = current.scopes().get(scopeId);
+            if (scope != null) {
+                scope.hot().upsert(postId, meta.score("hot"));
+                scope.top().upsert(postId, meta.score("top"));
+            }
+        }
+    }
+
+    private void upsert(Scope scope, long postId, Meta meta) {
+        scope.hot().upsert(postId, meta.score("hot"));
+        scope.recent().upsert(postId, meta.score("new"));
+        scope.top().upsert(postId, meta.score("top"));
+    }
+
+    private Scope emptyScope() {
+        return new Scope(new Ranking(capacity, true), new Ranking(capacity, true), new Ranking(capacity, true));
+    }
+
+    private Ranking build(List<Long> ids, ToDoubleFunction<Long> score, boolean complete) {
+        List<Long> sorted = new ArrayList<>(ids);
+        sorted.sort(Comparator.comparingDouble(score).thenComparingLong(Long::longValue).reversed());
+        int size = Math.min(sorted.size(), capacity);
+        long[] rankedIds = new long[size];
+        double[] scores = new double[size];
+        for (int i = 0; i < size; i++) {
+            rankedIds[i] = sorted.get(i);
+            scores[i] = score.applyAsDouble(sorted.get(i));
+        }
+        return new Ranking(capacity, rankedIds, scores, complete && sorted.size() <= capacity);
+    }
+
+    /**
+     * One ordering: ids and scores in parallel arrays, sorted by (score, id)
+     * descending. {@code complete} means it holds every post of its scope, so
+     * running off the end is the end of the feed rather than of the index.
+     */
+    static final class Ranking {
+
+        private final int capacity;
+        private long[] ids;
+        private double[] scores;
+        private int size;
+        private boolean complete;
+
+        Ranking(int capacity, boolean complete) {
+            this(capacity, new long[16], new double[16], complete);
+            this.size = 0;
+        }
+
+        Ranking(int capacity, long[] ids, double[] scores, boolean complete) {
+            this.capacity = capacity;
+            this.ids = ids;
+            this.scores = scores;
+            this.size = ids.length;
+            this.complete = complete;
+        }
+
+        synchronized void upsert(long id, double score) {
+            removeAt(indexOf(id));
+            int at = firstAfter(score, id);
+            if (at == size && (size == capacity || !complete)) {
+                // Belongs past the end, possibly behind posts this ranking does not hold
+                complete = false;
+                return;
+            }
+            if (size == capacity) {
+                complete = false;
+                size--;
+            }
+            if (size == ids.length) {
+                int grown = Math.min(capacity, Math.max(16, ids.length * 2));
+                ids = Arrays.copyOf(ids, grown);
+                scores = Arrays.copyOf(scores, grown);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            System.arraycopy(scores, at, scores, at + 1, size - at);
+            ids[at] = id;
+            scores[at] = score;
+            size++;
+        }
+
+        synchronized void remove(long id) {
+            removeAt(indexOf(id));
+        }
+
+        /** Null when the page would run past the end of an incomplete ranking. */
+        synchronized Window window(String sort, double afterScore, long afterId, int limit) {
+            int from = Double.isNaN(afterScore) ? 0 : firstAfter(afterScore, afterId);
+            int to = Math.min(size, from + limit);
+            if (to - from < limit && !complete) {
+                return null;
+            }
+            long[] page = Arrays.copyOfRange(ids, from, to);
+            boolean hasNext = to < size || !complete;
+            String nextCursor = hasNext && to > from
+                    ? FeedRankings.nextCursor(sort, scores[to - 1], ids[to - 1])
+                    : null;
+            return new Window(page, nextCursor);
+        }
+
+        private int indexOf(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void removeAt(int index) {
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            System.arraycopy(scores, index + 1, scores, index, size - index - 1);
+            size--;
+        }
+
+        // Index of the first entry that sorts after (score, id)
+        private int firstAfter(double score, long id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (scores[mid] > score || (scores[mid] == score && ids[mid] > id)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.redditclone.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Hot/new/top orderings as Redis sorted sets, so every backend node pages the
+ * same ranking. There is one set per ordering for the global feed and for each
+ * subreddit, each trimmed to {@code ranking.capacity} members. Members are
+ * zero-padded post ids, so equal scores fall back to id order like the keyset
+ * queries. Post, removal and vote events are applied after commit by Lua
+ * scripts, so concurrent updates from different nodes cannot interleave. Every
+ * key carries the {@code {feed}} hash tag, so the scripts and the rebuild's
+ * renames stay within one slot on Redis Cluster.
+ *
+ * <p>A hash records which sets still hold every post of their scope; paging
+ * past the end of any other set returns empty and the caller falls back to the
+ * keyset queries. One node rebuilds everything from the database per rebuild
+ * interval. While it runs, the scripts record which posts they touched, and
+ * those posts are re-read and re-applied once the rebuilt sets are live.
+ *
+ * <p>Loaded vote counts add only the rebuilding node's unflushed deltas, so a
+ * post misses the votes other nodes still buffered at load time, at most one
+ * flush interval's worth, until a later rebuild reads them from the database.
+ */
+@Component
+@ConditionalOnProperty(name = "ranking.store", havingValue = "redis")
+@Slf4j
+public class RedisFeedRanking implements FeedRanking {
+
+    private static final String KEY_PREFIX = "{feed}:";
+    private static final String COMPLETE_KEY = KEY_PREFIX + "complete";
+    private static final String POSTS_KEY = KEY_PREFIX + "posts";
+    private static final String VOTES_KEY = KEY_PREFIX + "votes";
+    private static final String REBUILD_LOCK = KEY_PREFIX + "rebuild-lock";
+    private static final String REBUILDING_KEY = KEY_PREFIX + "rebuilding";
+    private static final String TOUCHED_KEY = KEY_PREFIX + "touched";
+    private static final List<String> FIXED_KEYS =
+            List.of(COMPLETE_KEY, POSTS_KEY, VOTES_KEY, REBUILDING_KEY, TOUCHED_KEY);
+    private static final String BUILT = "built";
+    private static final String BUILDING_SUFFIX = ":building";
+    private static final List<String> SORTS = List.of("hot", "new", "top");
+
+    // Shared by the scripts below. While a rebuild is loading, notes the post so
+    // the rebuild can re-apply it after swapping in its sets.
+    private static final String TRACK = """
+            local function track(member)
+              if redis.call('EXISTS', KEYS[4]) == 1 then
+                redis.call('SADD', KEYS[5], member)
+              end
+            end
+            """;
+
+    // Adds or moves a member in one ordering and
+    // trims it to capacity; in a set that no longer holds its whole scope, a
+    // member scoring below the current tail is dropped, since posts the set
+    // does not hold may rank above it. Only the rebuild marks a set complete:
+    // a set missing here may belong to a scope whose other posts are unknown.
+    private static final String PLACE = """
+            local function place(key, score, member, capacity)
+              local tail = redis.call('ZRANGE', key, 0, 0, 'WITHSCORES')
+              if redis.call('HEXISTS', KEYS[1], key) == 0 and tail[2] and tonumber(score) < tonumber(tail[2]) then
+                redis.call('ZREM', key, member)
+                return
+              end
+              redis.call('ZADD', key, score, member)
+              if redis.call('ZCARD', key) > capacity then
+                redis.call('ZREMRANGEBYRANK', key, 0, -(capacity + 1))
+                redis.call('HDEL', KEYS[1], key)
+              end
+            end
+            """;
+
+    // KEYS (all scripts): complete hash, posts hash, votes hash, rebuilding marker, touched set,
+    // then hot/new/top of the global feed and hot/new/top of the post's subreddit.
+    // ARGV: member, capacity, subreddit id, created micros, hot score, vote count.
+    private static final RedisScript<Long> ADD = new DefaultRedisScript<>(TRACK + PLACE + """
+            track(ARGV[1])
+            if redis.call('HEXISTS', KEYS[1], 'built') == 0 then
+              return 0
+            end
+            local capacity = tonumber(ARGV[2])
+            redis.call('HSET', KEYS[2], ARGV[1], ARGV[3] .. '|' .. ARGV[4])
+            redis.call('HSET', KEYS[3], ARGV[1], ARGV[6])
+            for _, first in ipairs({6, 9}) do
+              place(KEYS[first], ARGV[5], ARGV[1], capacity)
+              place(KEYS[first + 1], ARGV[4], ARGV[1], capacity)
+              place(KEYS[first + 2], ARGV[6], ARGV[1], capacity)
+            end
+            return 1
+            """, Long.class);
+
+    // ARGV: member.
+    private static final RedisScript<Long> REMOVE = new DefaultRedisScript<>(TRACK + """
+            track(ARGV[1])
+            if not redis.call('HGET', KEYS[2], ARGV[1]) then
+              return 0
+            end
+            for i = 6, 11 do
+              redis.call('ZREM', KEYS[i], ARGV[1])
+            end
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            redis.call('HDEL', KEYS[3], ARGV[1])
+            return 1
+            """, Long.class);
+
+    // ARGV: member, capacity, delta, post entry the caller built the keys from.
+    // Hot score uses the same formula as Post.computeHotScore.
+    private static final RedisScript<Long> VOTE = new DefaultRedisScript<>(TRACK + PLACE + """
+            track(ARGV[1])
+            local post = redis.call('HGET', KEYS[2], ARGV[1])
+            if post ~= ARGV[4] then
+              return 0
+            end
+            local created = string.match(post, '|(%-?%d+)$')
+            local votes = redis.call('HINCRBY', KEYS[3], ARGV[1], ARGV[3])
+            local sign = votes > 0 and 1 or (votes < 0 and -1 or 0)
+            local seconds = math.floor(tonumber(created) / 1000000) - 1134028003
+            local hot = sign * math.log10(math.max(math.abs(votes), 1)) + seconds / 45000.0
+            local capacity = tonumber(ARGV[2])
+            for _, first in ipairs({6, 9}) do
+              place(KEYS[first], string.format('%.17g', hot), ARGV[1], capacity)
+              place(KEYS[first + 2], votes, ARGV[1], capacity)
+            end
+            return 1
+            """, Long.class);
+
+    // KEYS: the first five above. ARGV: member. For a vote on a post the sets do not hold.
+    private static final RedisScript<Long> TOUCH = new DefaultRedisScript<>(TRACK + """
+            track(ARGV[1])
+            return 1
+            """, Long.class);
+
+    private record Row(long id, long subredditId, int voteCount, LocalDateTime createdAt) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final VoteAggregator voteAggregator;
+    private final int capacity;
+    private final Duration rebuildInterval;
+
+    public RedisFeedRanking(StringRedisTemplate redisTemplate, JdbcTemplate jdbcTemplate,
+            VoteAggregator voteAggregator,
+            @Value("${ranking.capacity}") int capacity,
+            @Value("${ranking.rebuild-interval-ms}") long rebuildIntervalMs) {
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.voteAggregator = voteAggregator;
+        this.capacity = capacity;
+        this.rebuildInterval = Duration.ofMillis(rebuildIntervalMs);
+    }
+
+    @Override
+    public Optional<Window> window(Long subredditId, String sort, String cursor, int size) {
+        String key = key(subredditId != null ? subredditId.toString() : "all", sort);
+        List<Object> flags = redisTemplate.opsForHash().multiGet(COMPLETE_KEY, List.<Object>of(BUILT, key));
+        if (flags.get(0) == null) {
+            return Optional.empty();
+        }
+        boolean complete = flags.get(1) != null;
+
+        double max = Double.POSITIVE_INFINITY;
+        long afterId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            FeedCursor after = FeedCursor.decode(cursor, sort);
+            max = FeedRankings.cursorScore(after);
+            afterId = after.id();
+        }
+
+        // Scores equal to the cursor's include posts at or before it, which are skipped
+        List<TypedTuple<String>> entries = new ArrayList<>();
+        long offset = 0;
+        while (entries.size() <= size) {
+            Set<TypedTuple<String>> chunk = redisTemplate.opsForZSet()
+                    .reverseRangeByScoreWithScores(key, Double.NEGATIVE_INFINITY, max, offset, size + 1);
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            for (TypedTuple<String> entry : chunk) {
+                if (entry.getScore() != max || Long.parseLong(entry.getValue()) < afterId) {
+                    entries.add(entry);
+                }
+            }
+            if (chunk.size() < size + 1) {
+                break;
+            }
+            offset += chunk.size();
+        }
+
+        if (entries.size() < size && !complete) {
+            return Optional.empty();
+        }
+        List<TypedTuple<String>> page = entries.subList(0, Math.min(size, entries.size()));
+        long[] ids = page.stream().mapToLong(entry -> Long.parseLong(entry.getValue())).toArray();
+        boolean hasNext = entries.size() > size || !complete;
+        String nextCursor = null;
+        if (hasNext && !page.isEmpty()) {
+            TypedTuple<String> last = page.get(page.size() - 1);
+            nextCursor = FeedRankings.nextCursor(sort, last.getScore(), Long.parseLong(last.getValue()));
+        }
+        return Optional.of(new Window(ids, nextCursor));
+    }
+
+    /**
+     * Reloads every ordering from the database into staging keys and renames
+     * them over the live ones, then re-applies the posts that events touched
+     * meanwhile. The lock doubles as a marker of the last rebuild, so a cluster
+     * rebuilds once per interval rather than once per node.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${ranking.rebuild-interval-ms}",
+            fixedDelayString = "${ranking.rebuild-interval-ms}")
+    public void rebuild() {
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK, "1", rebuildInterval))) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            // Set before the load, so any change it might miss was committed after and gets tracked
+            redisTemplate.delete(TOUCHED_KEY);
+            redisTemplate.opsForValue().set(REBUILDING_KEY, "1", rebuildInterval);
+            List<Row> rows = new ArrayList<>();
+            Map<Long, Long> totals = new HashMap<>();
+            // Only this node's buffer is visible here; other nodes' unflushed deltas are read by the next rebuild
+            jdbcTemplate.query(FeedRankings.LOAD_SQL, rs -> {
+                long id = rs.getLong("id");
+                long subredditId = rs.getLong("subreddit_id");
+                rows.add(new Row(id, subredditId, rs.getInt("vote_count") + voteAggregator.pendingPostDelta(id),
+                        rs.getTimestamp("created_at").toLocalDateTime()));
+                totals.put(subredditId, rs.getLong("total"));
+            }, capacity, capacity, capacity);
+
+            Map<String, List<Row>> rowsByScope = new HashMap<>();
+            Map<String, String> posts = new HashMap<>();
+            Map<String, String> votes = new HashMap<>();
+            for (Row row : rows) {
+                rowsByScope.computeIfAbsent("all", k -> new ArrayList<>()).add(row);
+                rowsByScope.computeIfAbsent(Long.toString(row.subredditId()), k -> new ArrayList<>()).add(row);
+                posts.put(member(row.id()), row.subredditId() + "|" + FeedRankings.createdMicros(row.createdAt()));
+                votes.put(member(row.id()), Integer.toString(row.voteCount()));
+            }
+            long globalTotal = totals.values().stream().mapToLong(Long::longValue).sum();
+
+            Map<String, String> complete = new HashMap<>();
+            rowsByScope.forEach((scope, scopeRows) -> {
+                long total = scope.equals("all") ? globalTotal : totals.get(Long.parseLong(scope));
+                for (String sort : SORTS) {
+                    String key = key(scope, sort);
+                    Set<TypedTuple<String>> members = new HashSet<>();
+                    for (Row row : scopeRows) {
+                        members.add(TypedTuple.of(member(row.id()),
+                                FeedRankings.score(sort, row.voteCount(), row.createdAt())));
+                    }
+                    redisTemplate.opsForZSet().add(key + BUILDING_SUFFIX, members);
+                    redisTemplate.opsForZSet().removeRange(key + BUILDING_SUFFIX, 0, -(capacity + 1));
+                    redisTemplate.rename(key + BUILDING_SUFFIX, key);
+                    if (total <= capacity) {
+                        complete.put(key, "1");
+                    }
+                }
+            });
+            complete.put(BUILT, "1");
+
+            swapHash(POSTS_KEY, posts);
+            swapHash(VOTES_KEY, votes);
+            swapHash(COMPLETE_KEY, complete);
+            int touched = reapplyTouched();
+            log.info("Feed rankings rebuilt: {} posts in {} scopes, {} re-applied, in {} ms",
+                    rows.size(), rowsByScope.size(), touched, System.currentTimeMillis() - start);
+        } catch (RuntimeException ex) {
+            // Let another node (or the next run) try again
+            redisTemplate.delete(List.of(REBUILD_LOCK, REBUILDING_KEY, TOUCHED_KEY));
+            log.warn("Feed ranking rebuild failed: {}", ex.getMessage());
+        }
+    }
+
+    // Stops tracking, then writes the current row of every tracked post over what the rebuild loaded
+    private int reapplyTouched() {
+        redisTemplate.delete(REBUILDING_KEY);
+        Set<String> touched = redisTemplate.opsForSet().members(TOUCHED_KEY);
+        redisTemplate.delete(TOUCHED_KEY);
+        if (touched == null || touched.isEmpty()) {
+            return 0;
+        }
+        Set<Long> removed = new HashSet<>();
+        touched.forEach(member -> removed.add(Long.parseLong(member)));
+        jdbcTemplate.query(FeedRankings.postsByIdSql(removed.size()), rs -> {
+            long id = rs.getLong("id");
+            removed.remove(id);
+            place(id, rs.getLong("subreddit_id"), rs.getInt("vote_count") + voteAggregator.pendingPostDelta(id),
+                    rs.getTimestamp("created_at").toLocalDateTime());
+        }, removed.toArray());
+        // Whatever the query did not return was deleted
+        for (Long id : removed) {
+            storedSubreddit(member(id)).ifPresent(subredditId ->
+                    redisTemplate.execute(REMOVE, scriptKeys(subredditId), member(id)));
+        }
+        return touched.size();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPostAdded(PostAdded event) {
+        place(event.postId(), event.subredditId(), 0, event.createdAt());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPostRemoved(PostRemoved event) {
+        redisTemplate.execute(REMOVE, scriptKeys(event.subredditId()), member(event.postId()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onVote(VoteAggregator.VoteDelta vote) {
+        if (vote.postId() == null || vote.delta() == 0) {
+            return;
+        }
+        // The subreddit decides which sets the script touches, so it is looked up first and re-checked inside
+        String member = member(vote.postId());
+        Object post = redisTemplate.opsForHash().get(POSTS_KEY, member);
+        if (post == null) {
+            redisTemplate.execute(TOUCH, FIXED_KEYS, member);
+            return;
+        }
+        redisTemplate.execute(VOTE, scriptKeys(subredditOf(post.toString())),
+                member, Integer.toString(capacity), Integer.toString(vote.delta()), post.toString());
+    }
+
+    private void place(long postId, long subredditId, int voteCount, LocalDateTime createdAt) {
+        redisTemplate.execute(ADD, scriptKeys(subredditId),
+                member(postId), Integer.toString(capacity), Long.toString(subredditId),
+                Long.toString(FeedRankings.createdMicros(createdAt)),
+                Double.toString(FeedRankings.score("hot", voteCount, createdAt)), Integer.toString(voteCount));
+    }
+
+    private Optional<Long> storedSubreddit(String member) {
+        Object post = redisTemplate.opsForHash().get(POSTS_KEY, member);
+        return post != null ? Optional.of(subredditOf(post.toString())) : Optional.empty();
+    }
+
+    // Posts hash entries are "subredditId|createdMicros"
+    private static long subredditOf(String post) {
+        return Long.parseLong(post.substring(0, post.indexOf('|')));
+    }
+
+    // Every key a script may touch for a post in the given subreddit, in the order the scripts expect
+    private static List<String> scriptKeys(long subredditId) {
+        List<String> keys = new ArrayList<>(FIXED_KEYS);
+        for (String scope : List.of("all", Long.toString(subredditId))) {
+            for (String sort : SORTS) {
+                keys.add(key(scope, sort));
+            }
+        }
+        return keys;
+    }
+
+    private void swapHash(String key, Map<String, String> entries) {
+        if (entries.isEmpty()) {
+            redisTemplate.delete(key);
+            return;
+        }
+        redisTemplate.opsForHash().putAll(key + BUILDING_SUFFIX, entries);
+        redisTemplate.rename(key + BUILDING_SUFFIX, key);
+    }
+
+    private static String key(String scope, String sort) {
+        return KEY_PREFIX + scope + ":" + sort;
+    }
+
+    // Fixed width, so lexicographic order on equal scores is id order
+    private static String member(long postId) {
+        return String.format("%019d", postId);
+    }
+}
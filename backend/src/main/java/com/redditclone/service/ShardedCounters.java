@@ -0,0 +1,168 @@
+package com.redditclone.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counter columns that stay uncontended under bursts. Increments normally go
+ * straight to the owning column; once an entity sees more than
+ * {@code counters.hot-threshold} writes in a window, further increments land on
+ * one of {@code counters.shards} rows in counter_shards instead, so concurrent
+ * transactions lock different rows. Readers add {@link #shardTotals} to the
+ * column, and shards are folded back into the column once no node has written
+ * them for {@code counters.fold-after-ms}.
+ *
+ * <p>Which entities have shard rows is read back from the table every window,
+ * so readers on every node, including one that just started, include shards
+ * written elsewhere.
+ */
+@Component
+@Slf4j
+public class ShardedCounters {
+
+    public enum Counter {
+        POST_COMMENTS("posts", "comment_count"),
+        SUBREDDIT_MEMBERS("subreddits", "member_count");
+
+        private final String incrementSql;
+        private final String foldSql;
+
+        Counter(String table, String column) {
+            this.incrementSql = "UPDATE " + table + " SET " + column + " = " + column + " + ? WHERE id = ?";
+            this.foldSql = "WITH moved AS (DELETE FROM counter_shards WHERE counter = ? AND entity_id = ? " +
+                    "RETURNING delta) UPDATE " + table + " SET " + column + " = " + column +
+                    " + (SELECT COALESCE(SUM(delta), 0) FROM moved) WHERE id = ?";
+        }
+    }
+
+    private record Key(Counter counter, Long entityId) {
+    }
+
+    private static final String SHARD_INCREMENT =
+            "INSERT INTO counter_shards (counter, entity_id, shard, delta) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (counter, entity_id, shard) " +
+            "DO UPDATE SET delta = counter_shards.delta + EXCLUDED.delta, updated_at = NOW()";
+    private static final String SHARD_TOTALS = "SELECT entity_id, SUM(delta) AS total FROM counter_shards " +
+            "WHERE counter = ? AND entity_id = ANY(?) GROUP BY entity_id";
+    private static final String SHARDED_KEYS = "SELECT DISTINCT counter, entity_id FROM counter_shards";
+    private static final String COOLED_KEYS = "SELECT counter, entity_id FROM counter_shards " +
+            "GROUP BY counter, entity_id HAVING MAX(updated_at) < NOW() - ? * INTERVAL '1 millisecond'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int shards;
+    private final int hotThreshold;
+    private final long foldAfterMs;
+
+    private final Map<Key, AtomicInteger> currentWindow = new ConcurrentHashMap<>();
+    private volatile Map<Key, AtomicInteger> previousWindow = Map.of();
+    // Keys with shard rows as of the last refresh, plus those this node has sharded since
+    private final Set<Key> sharded = ConcurrentHashMap.newKeySet();
+
+    public ShardedCounters(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${counters.shards}") int shards,
+            @Value("${counters.hot-threshold}") int hotThreshold,
+            @Value("${counters.fold-after-ms}") long foldAfterMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+        this.hotThreshold = hotThreshold;
+        this.foldAfterMs = foldAfterMs;
+    }
+
+    /**
+     * Runs in the caller's transaction, so the count commits or rolls back with
+     * the row being counted.
+     */
+    public void increment(Counter counter, Long id, int delta) {
+        Key key = new Key(counter, id);
+        int writes = currentWindow.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+        if (isHot(key, writes)) {
+            sharded.add(key);
+            int shard = ThreadLocalRandom.current().nextInt(shards);
+            jdbcTemplate.update(SHARD_INCREMENT, counter.name(), id, shard, delta);
+        } else {
+            jdbcTemplate.update(counter.incrementSql, delta, id);
+        }
+    }
+
+    /**
+     * Shard totals for a whole page in one query, or none at all unless some of
+     * the entities have shard rows. Entities without shards are absent from the map.
+     */
+    public Map<Long, Integer> shardTotals(Counter counter, Collection<Long> ids) {
+        Long[] shardedIds = ids.stream()
+                .filter(id -> sharded.contains(new Key(counter, id)))
+                .distinct()
+                .toArray(Long[]::new);
+        if (shardedIds.length == 0) {
+            return Map.of();
+        }
+        Map<Long, Integer> totals = new HashMap<>();
+        jdbcTemplate.query(SHARD_TOTALS, ps -> {
+            ps.setString(1, counter.name());
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", shardedIds));
+        }, rs -> {
+            totals.put(rs.getLong("entity_id"), rs.getInt("total"));
+        });
+        return totals;
+    }
+
+    @Scheduled(fixedRateString = "${counters.window-ms}")
+    public void rotateWindow() {
+        previousWindow = new HashMap<>(currentWindow);
+        currentWindow.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${counters.window-ms}")
+    public void refreshSharded() {
+        Set<Key> keys = new HashSet<>(jdbcTemplate.query(SHARDED_KEYS, (rs, rowNum) ->
+                new Key(Counter.valueOf(rs.getString("counter")), rs.getLong("entity_id"))));
+        sharded.addAll(keys);
+        // Keys this node is still sharding may have been written after the query
+        sharded.removeIf(key -> !keys.contains(key) && !isHot(key, windowWrites(key)));
+    }
+
+    /**
+     * Folds shards that no node has written to lately, including rows left by an
+     * increment that raced with an earlier fold.
+     */
+    @Scheduled(fixedDelayString = "${counters.fold-interval-ms}")
+    public void foldCooled() {
+        List<Key> keys = jdbcTemplate.query(COOLED_KEYS, (rs, rowNum) ->
+                new Key(Counter.valueOf(rs.getString("counter")), rs.getLong("entity_id")), foldAfterMs);
+        for (Key key : keys) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                        key.counter().foldSql, key.counter().name(), key.entityId(), key.entityId()));
+            } catch (RuntimeException ex) {
+                log.warn("Failed to fold {} shards for {}", key.counter(), key.entityId(), ex);
+            }
+        }
+    }
+
+    private int windowWrites(Key key) {
+        AtomicInteger writes = currentWindow.get(key);
+        return writes != null ? writes.get() : 0;
+    }
+
+    private boolean isHot(Key key, int currentWrites) {
+        AtomicInteger previous = previousWindow.get(key);
+        return currentWrites >= hotThreshold || (previous != null && previous.get() >= hotThreshold);
+    }
+}
@@ -1,5 +1,7 @@
 package com.redditclone.service;
 
+import com.redditclone.cache.CacheNames;
+import com.redditclone.cache.SingleFlightLoader;
 import com.redditclone.dto.SubredditDto;
 import com.redditclone.exception.BadRequestException;
 import com.redditclone.exception.ResourceNotFoundException;
@@ -9,8 +11,14 @@ import com.redditclone.model.User;
 import com.redditclone.repository.SubredditMembershipRepository;
 import com.redditclone.repository.SubredditRepository;
 import com.redditclone.repository.UserRepository;
+import com.redditclone.search.SearchDocument;
+import com.redditclone.search.SearchIndexEvent;
+import com.redditclone.search.SuggestionEvent;
 import com.redditclone.security.CurrentUser;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -18,6 +26,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +38,11 @@ public class SubredditService {
     private final SubredditMembershipRepository membershipRepository;
     private final UserRepository userRepository;
     private final CurrentUser currentUser;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardedCounters shardedCounters;
+    private final MembershipCache membershipCache;
+    private final CacheManager cacheManager;
+    private final SingleFlightLoader singleFlightLoader;
 
     @Transactional
     public SubredditDto.Response create(SubredditDto.CreateRequest request) {
@@ -52,43 +67,70 @@ public class SubredditService {
                 .role("MODERATOR")
                 .build();
         membershipRepository.save(membership);
+        eventPublisher.publishEvent(new MembershipCache.Change(creator.getId(), subreddit.getId(), true));
 
-        return mapToResponse(subreddit, true);
+        eventPublisher.publishEvent(SearchIndexEvent.upsert(SearchDocument.of(subreddit)));
+        eventPublisher.publishEvent(SuggestionEvent.of(subreddit));
+        return mapToResponse(subreddit, true, Map.of());
     }
 
     @Transactional(readOnly = true)
     public SubredditDto.Response getByName(String name) {
-        Subreddit subreddit = subredditRepository.findByName(name)
-                .orElseThrow(() -> new ResourceNotFoundException("Subreddit", "name", name));
-        boolean isMember = checkMembership(subreddit.getId());
-        return mapToResponse(subreddit, isMember);
+        Cache cache = cacheManager.getCache(CacheNames.SUBREDDITS_BY_NAME);
+        SubredditDto.Response response = cache.get(name, SubredditDto.Response.class);
+        if (response == null) {
+            Subreddit subreddit = subredditRepository.findByName(name)
+                    .orElseThrow(() -> new ResourceNotFoundException("Subreddit", "name", name));
+            response = mapToResponse(subreddit, false, memberShards(List.of(subreddit)));
+            cache.put(name, response);
+        }
+        return withMembership(response);
     }
 
     @Transactional(readOnly = true)
     public SubredditDto.Response getById(Long id) {
-        Subreddit subreddit = subredditRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Subreddit", "id", id));
-        boolean isMember = checkMembership(subreddit.getId());
-        return mapToResponse(subreddit, isMember);
+        Cache cache = cacheManager.getCache(CacheNames.SUBREDDITS);
+        SubredditDto.Response response = cache.get(id, SubredditDto.Response.class);
+        if (response == null) {
+            Subreddit subreddit = subredditRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Subreddit", "id", id));
+            response = mapToResponse(subreddit, false, memberShards(List.of(subreddit)));
+            cache.put(id, response);
+        }
+        return withMembership(response);
     }
 
     @Transactional(readOnly = true)
     public List<SubredditDto.Response> getTopSubreddits(int limit) {
-        return subredditRepository.findTopByMemberCount(PageRequest.of(0, limit)).stream()
-                .map(s -> mapToResponse(s, checkMembership(s.getId())))
+        List<SubredditDto.Response> top = singleFlightLoader.get(CacheNames.TOP_SUBREDDITS, limit, () -> {
+            List<Subreddit> subreddits = subredditRepository.findTopByMemberCount(PageRequest.of(0, limit));
+            Map<Long, Integer> shards = memberShards(subreddits);
+            return subreddits.stream()
+                    .map(s -> mapToResponse(s, false, shards))
+                    .collect(Collectors.toList());
+        });
+        Set<Long> joined = joinedSubredditIds();
+        return top.stream()
+                .map(s -> s.toBuilder().isMember(joined.contains(s.getId())).build())
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public Page<SubredditDto.Response> search(String query, Pageable pageable) {
-        return subredditRepository.searchByNameOrDescription(query, pageable)
-                .map(s -> mapToResponse(s, checkMembership(s.getId())));
+        Set<Long> joined = joinedSubredditIds();
+        Page<Subreddit> subreddits = subredditRepository.searchFullText(query, pageable);
+        Map<Long, Integer> shards = memberShards(subreddits.getContent());
+        return subreddits.map(s -> mapToResponse(s, joined.contains(s.getId()), shards));
     }
 
     @Transactional(readOnly = true)
     public List<SubredditDto.Response> getUserSubreddits(Long userId) {
-        return membershipRepository.findByUserId(userId).stream()
-                .map(m -> mapToResponse(m.getSubreddit(), true))
+        List<Subreddit> subreddits = membershipRepository.findWithSubredditByUserId(userId).stream()
+                .map(SubredditMembership::getSubreddit)
+                .collect(Collectors.toList());
+        Map<Long, Integer> shards = memberShards(subreddits);
+        return subreddits.stream()
+                .map(s -> mapToResponse(s, true, shards))
                 .collect(Collectors.toList());
     }
 
@@ -108,9 +150,9 @@ public class SubredditService {
                 .role("MEMBER")
                 .build();
         membershipRepository.save(membership);
-
-        subreddit.setMemberCount(subreddit.getMemberCount() + 1);
-        subredditRepository.save(subreddit);
+        shardedCounters.increment(ShardedCounters.Counter.SUBREDDIT_MEMBERS, subredditId, 1);
+        eventPublisher.publishEvent(new MembershipCache.Change(user.getId(), subredditId, true));
+        evictCached(subreddit);
     }
 
     @Transactional
@@ -119,26 +161,45 @@ public class SubredditService {
         Subreddit subreddit = subredditRepository.findById(subredditId)
                 .orElseThrow(() -> new ResourceNotFoundException("Subreddit", "id", subredditId));
 
-        membershipRepository.deleteByUserIdAndSubredditId(user.getId(), subredditId);
-        subreddit.setMemberCount(Math.max(0, subreddit.getMemberCount() - 1));
-        subredditRepository.save(subreddit);
+        if (membershipRepository.deleteByUserIdAndSubredditId(user.getId(), subredditId) > 0) {
+            shardedCounters.increment(ShardedCounters.Counter.SUBREDDIT_MEMBERS, subredditId, -1);
+            eventPublisher.publishEvent(new MembershipCache.Change(user.getId(), subredditId, false));
+            evictCached(subreddit);
+        }
+    }
+
+    // The cache manager is transaction-aware, so these run after commit and readers reload the new memberCount
+    private void evictCached(Subreddit subreddit) {
+        cacheManager.getCache(CacheNames.SUBREDDITS).evict(subreddit.getId());
+        cacheManager.getCache(CacheNames.SUBREDDITS_BY_NAME).evict(subreddit.getName());
+    }
+
+    // Cached responses are shared across viewers, so membership goes on a copy
+    private SubredditDto.Response withMembership(SubredditDto.Response response) {
+        boolean isMember = joinedSubredditIds().contains(response.getId());
+        return response.toBuilder().isMember(isMember).build();
+    }
+
+    // One cache read fills isMember for a whole page
+    private Set<Long> joinedSubredditIds() {
+        return membershipCache.subredditIdsOf(currentUser.getUserId());
     }
 
-    private boolean checkMembership(Long subredditId) {
-        Long userId = currentUser.getUserId();
-        if (userId == null)
-            return false;
-        return membershipRepository.existsByUserIdAndSubredditId(userId, subredditId);
+    // Member counts still sitting in counter shards, for the whole page at once
+    private Map<Long, Integer> memberShards(List<Subreddit> subreddits) {
+        return shardedCounters.shardTotals(ShardedCounters.Counter.SUBREDDIT_MEMBERS,
+                subreddits.stream().map(Subreddit::getId).collect(Collectors.toList()));
     }
 
-    private SubredditDto.Response mapToResponse(Subreddit subreddit, boolean isMember) {
+    private SubredditDto.Response mapToResponse(Subreddit subreddit, boolean isMember,
+            Map<Long, Integer> memberShards) {
         return SubredditDto.Response.builder()
                 .id(subreddit.getId())
                 .name(subreddit.getName())
                 .description(subreddit.getDescription())
                 .bannerUrl(subreddit.getBannerUrl())
                 .iconUrl(subreddit.getIconUrl())
-                .memberCount(subreddit.getMemberCount())
+                .memberCount(subreddit.getMemberCount() + memberShards.getOrDefault(subreddit.getId(), 0))
                 .creatorUsername(subreddit.getCreator().getUsername())
                 .creatorId(subreddit.getCreator().getId())
                 .isMember(isMember)
@@ -1,10 +1,13 @@
 package com.redditclone.service;
 
+import com.redditclone.cache.CacheNames;
 import com.redditclone.dto.AuthDto;
 import com.redditclone.exception.ResourceNotFoundException;
 import com.redditclone.model.User;
 import com.redditclone.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,6 +16,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final CacheManager cacheManager;
 
     @Transactional(readOnly = true)
     public AuthDto.UserResponse getUserById(Long id) {
@@ -23,9 +27,15 @@ public class UserService {
 
     @Transactional(readOnly = true)
     public AuthDto.UserResponse getUserByUsername(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
-        return mapToResponse(user);
+        Cache cache = cacheManager.getCache(CacheNames.USERS_BY_USERNAME);
+        AuthDto.UserResponse response = cache.get(username, AuthDto.UserResponse.class);
+        if (response == null) {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
+            response = mapToResponse(user);
+            cache.put(username, response);
+        }
+        return response;
     }
 
     @Transactional
@@ -39,6 +49,7 @@ public class UserService {
             user.setBio(bio);
 
         user = userRepository.save(user);
+        cacheManager.getCache(CacheNames.USERS_BY_USERNAME).evict(user.getUsername());
         return mapToResponse(user);
     }
 
@@ -48,14 +59,7 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
         user.setAvatarUrl(avatarUrl);
         userRepository.save(user);
-    }
-
-    @Transactional
-    public void updateKarma(Long userId, int delta) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
-        user.setKarma(user.getKarma() + delta);
-        userRepository.save(user);
+        cacheManager.getCache(CacheNames.USERS_BY_USERNAME).evict(user.getUsername());
     }
 
     private AuthDto.UserResponse mapToResponse(User user) {
@@ -68,6 +72,8 @@ public class UserService {
                 .avatarUrl(user.getAvatarUrl())
                 .bannerUrl(user.getBannerUrl())
                 .karma(user.getKarma())
+                .postKarma(user.getPostKarma())
+                .commentKarma(user.getCommentKarma())
                 .createdAt(user.getCreatedAt() != null ? user.getCreatedAt().toString() : null)
                 .build();
     }
@@ -0,0 +1,108 @@
+package com.redditclone.service;
+
+import com.redditclone.cache.CacheNames;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-behind buffer for vote counters. The vote row itself is written in the
+ * request transaction; the resulting post/comment score deltas are summed here
+ * once that transaction commits and applied in batched relative UPDATEs, so
+ * concurrent votes on one post never queue on its row lock. Counts served to
+ * clients add {@link #pendingPostDelta} and friends on top of the stored value,
+ * and a post's cached response is dropped as soon as its delta is buffered.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class VoteAggregator {
+
+    // Hot score is recomputed from the new vote_count; same formula as Post.computeHotScore
+    private static final String UPDATE_POST =
+            "UPDATE posts SET vote_count = vote_count + ?, " +
+            "hot_score = SIGN(vote_count + ?) * LOG(GREATEST(ABS(vote_count + ?), 1)) " +
+            "+ (EXTRACT(EPOCH FROM created_at) - 1134028003) / 45000.0 " +
+            "WHERE id = ?";
+    private static final String UPDATE_COMMENT = "UPDATE comments SET vote_count = vote_count + ? WHERE id = ?";
+    private static final String UPDATE_COMMENT_UPVOTES =
+            "UPDATE comments SET upvote_count = upvote_count + ? WHERE id = ?";
+
+    /** {@code delta} is the change in score, {@code upvoteDelta} the change in upvotes behind it. */
+    public record VoteDelta(Long postId, Long commentId, int delta, int upvoteDelta) {
+
+        // Only casting, flipping to or toggling off an upvote, or flipping one away, moves the upvote count
+        public static VoteDelta of(Long postId, Long commentId, short voteType, int delta) {
+            int upvoteDelta = voteType > 0 ? Integer.signum(delta) : (delta == -2 ? -1 : 0);
+            return new VoteDelta(postId, commentId, delta, upvoteDelta);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final CacheManager cacheManager;
+
+    private final WriteBehindBuffer postVotes = new WriteBehindBuffer();
+    private final WriteBehindBuffer commentVotes = new WriteBehindBuffer();
+    private final WriteBehindBuffer commentUpvotes = new WriteBehindBuffer();
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onVote(VoteDelta vote) {
+        if (vote.delta() == 0) {
+            return;
+        }
+        if (vote.postId() != null) {
+            postVotes.add(vote.postId(), vote.delta());
+            // evictIfPresent acts immediately; a plain evict would wait for a commit that has already happened
+            cacheManager.getCache(CacheNames.POSTS).evictIfPresent(vote.postId());
+        } else {
+            commentVotes.add(vote.commentId(), vote.delta());
+            commentUpvotes.add(vote.commentId(), vote.upvoteDelta());
+        }
+    }
+
+    public int pendingPostDelta(Long postId) {
+        return (int) postVotes.pending(postId);
+    }
+
+    public int pendingCommentDelta(Long commentId) {
+        return (int) commentVotes.pending(commentId);
+    }
+
+    @Scheduled(fixedDelayString = "${votes.flush-interval-ms}")
+    @PreDestroy
+    public synchronized void flush() {
+        try {
+            WriteBehindBuffer.flush(transactionManager, () -> {
+                jdbcTemplate.batchUpdate(UPDATE_POST, toArgs(postVotes.inFlight(), true));
+                jdbcTemplate.batchUpdate(UPDATE_COMMENT, toArgs(commentVotes.inFlight(), false));
+                jdbcTemplate.batchUpdate(UPDATE_COMMENT_UPVOTES, toArgs(commentUpvotes.inFlight(), false));
+            }, postVotes, commentVotes, commentUpvotes);
+        } catch (RuntimeException ex) {
+            log.error("Vote flush failed, retrying {} post and {} comment deltas",
+                    postVotes.inFlight().size(), commentVotes.inFlight().size(), ex);
+        }
+    }
+
+    private List<Object[]> toArgs(Map<Long, Long> deltas, boolean repeatDelta) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        // Sorted ids keep lock order consistent across concurrent flushers
+        deltas.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> args.add(repeatDelta
+                        ? new Object[]{e.getValue(), e.getValue(), e.getValue(), e.getKey()}
+                        : new Object[]{e.getValue(), e.getKey()}));
+        return args;
+    }
+}
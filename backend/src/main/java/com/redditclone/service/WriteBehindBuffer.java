@@ -0,0 +1,116 @@
+package com.redditclone.service;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-id counter deltas waiting to be written. Deltas are summed as they
+ * arrive, moved in flight when a flush starts and dropped only once the flush
+ * commits, so a failed write is retried by the next flush together with
+ * whatever arrived meanwhile. {@link #pending} covers both halves, which is
+ * what readers add on top of the stored value. Committing a flush and
+ * dropping its deltas happen under a write lock that {@link #pending} also
+ * takes, so no reader sees a delta both in the stored value and in flight.
+ * The lock is taken only once the writes are done, so a reader holding row
+ * locks the flush needs cannot deadlock with it.
+ */
+final class WriteBehindBuffer {
+
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    // Drained but not yet committed, still visible to readers
+    private final Map<Long, Long> inFlight = new ConcurrentHashMap<>();
+
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    void add(Long id, long delta) {
+        if (delta != 0) {
+            pending.merge(id, delta, Long::sum);
+        }
+    }
+
+    long pending(Long id) {
+        flushLock.readLock().lock();
+        try {
+            return pending.getOrDefault(id, 0L) + inFlight.getOrDefault(id, 0L);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    Map<Long, Long> inFlight() {
+        return Collections.unmodifiableMap(inFlight);
+    }
+
+    /**
+     * Drains every buffer and runs {@code write} over their in-flight deltas in
+     * one transaction, skipping it when there is nothing to write. A failed
+     * write throws and keeps the deltas in flight.
+     */
+    static void flush(PlatformTransactionManager transactionManager, Runnable write,
+            WriteBehindBuffer... buffers) {
+        boolean empty = true;
+        for (WriteBehindBuffer buffer : buffers) {
+            buffer.drain();
+            empty &= buffer.inFlight.isEmpty();
+        }
+        if (empty) {
+            return;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            write.run();
+            TransactionSynchronizationManager.registerSynchronization(new CommitBarrier(buffers));
+        });
+    }
+
+    // Holds readers off from just before the commit until the committed deltas are dropped
+    private static final class CommitBarrier implements TransactionSynchronization {
+
+        private final WriteBehindBuffer[] buffers;
+        private boolean locked;
+
+        CommitBarrier(WriteBehindBuffer[] buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            for (WriteBehindBuffer buffer : buffers) {
+                buffer.flushLock.writeLock().lock();
+            }
+            locked = true;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (!locked) {
+                return;
+            }
+            for (WriteBehindBuffer buffer : buffers) {
+                if (status == STATUS_COMMITTED) {
+                    buffer.inFlight.clear();
+                }
+                buffer.flushLock.writeLock().unlock();
+            }
+        }
+    }
+
+    // remove() is atomic per key, so a concurrent merge either lands before and is drained or starts a new entry
+    private void drain() {
+        for (Long id : new ArrayList<>(pending.keySet())) {
+            Long delta = pending.remove(id);
+            if (delta != null && delta != 0) {
+                inFlight.merge(id, delta, Long::sum);
+            }
+        }
+    }
+}
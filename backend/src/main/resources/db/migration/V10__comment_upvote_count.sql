@@ -0,0 +1,21 @@
+-- ═══════════════════════════════════════════════════════════════
+-- Reddit Clone — Per-comment upvote counts for "best" ordering
+-- ═══════════════════════════════════════════════════════════════
+
+-- Downvotes are upvote_count - vote_count, so the Wilson score of every
+-- comment in a thread can be computed without reading the votes table.
+ALTER TABLE comments ADD COLUMN upvote_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE comments
+SET upvote_count = tally.upvotes
+FROM (
+    SELECT comment_id, COUNT(*) AS upvotes
+    FROM votes
+    WHERE comment_id IS NOT NULL AND vote_type > 0
+    GROUP BY comment_id
+) tally
+WHERE comments.id = tally.comment_id;
+
+-- ─── Indexes ────────────────────────────────────────────────
+-- Thread pages only load the levels they can show
+CREATE INDEX idx_comments_post_depth ON comments(post_id, depth);
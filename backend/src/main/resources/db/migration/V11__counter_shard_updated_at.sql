@@ -0,0 +1,7 @@
+-- ═══════════════════════════════════════════════════════════════
+-- Reddit Clone — Last write time of counter shards
+-- ═══════════════════════════════════════════════════════════════
+
+-- Whether an entity has cooled off is decided from its shard rows, so
+-- every node agrees on it regardless of where the increments came from.
+ALTER TABLE counter_shards ADD COLUMN updated_at TIMESTAMP NOT NULL DEFAULT NOW();
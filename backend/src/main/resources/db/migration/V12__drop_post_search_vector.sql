@@ -0,0 +1,8 @@
+-- ═══════════════════════════════════════════════════════════════
+-- Reddit Clone — Drop the unused post search vector
+-- ═══════════════════════════════════════════════════════════════
+
+-- Post search is served from the Lucene index, so nothing reads this column
+-- any more. Subreddit search still uses its own vector and index.
+DROP INDEX IF EXISTS idx_posts_search_vector;
+ALTER TABLE posts DROP COLUMN IF EXISTS search_vector;
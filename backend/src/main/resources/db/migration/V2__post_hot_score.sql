@@ -0,0 +1,14 @@
+-- ═══════════════════════════════════════════════════════════════
+-- Reddit Clone — Persisted hot ranking score for posts
+-- ═══════════════════════════════════════════════════════════════
+
+-- Same formula as Post.computeHotScore: sign * log10(max(|votes|, 1)) + age term
+ALTER TABLE posts ADD COLUMN hot_score DOUBLE PRECISION NOT NULL DEFAULT 0;
+
+UPDATE posts
+SET hot_score = SIGN(COALESCE(vote_count, 0)) * LOG(GREATEST(ABS(COALESCE(vote_count, 0)), 1))
+    + (EXTRACT(EPOCH FROM created_at) - 1134028003) / 45000.0;
+
+-- ─── Indexes ────────────────────────────────────────────────
+CREATE INDEX idx_posts_hot_score ON posts(hot_score DESC, id DESC) WHERE is_deleted = FALSE;
+CREATE INDEX idx_posts_subreddit_hot_score ON posts(subreddit_id, hot_score DESC, id DESC) WHERE is_deleted = FALSE;
@@ -0,0 +1,9 @@
+-- ═══════════════════════════════════════════════════════════════
+-- Reddit Clone — Keyset pagination indexes for post feeds
+-- ═══════════════════════════════════════════════════════════════
+
+-- Every feed orders by (sort key, id) so a cursor resumes with an index range scan
+CREATE INDEX idx_posts_new ON posts(created_at DESC, id DESC) WHERE is_deleted = FALSE;
+CREATE INDEX idx_posts_subreddit_new ON posts(subreddit_id, created_at DESC, id DESC) WHERE is_deleted = FALSE;
+CREATE INDEX idx_posts_top ON posts(vote_count DESC, id DESC) WHERE is_deleted = FALSE;
+CREATE INDEX idx_posts_subreddit_top ON posts(subreddit_id, vote_count DESC, id DESC) WHERE is_deleted = FALSE;
@@ -0,0 +1,5 @@
+-- ═══════════════════════════════════════════════════════════════
+-- Reddit Clone — Index for loading a whole comment thread at once
+-- ═══════════════════════════════════════════════════════════════
+
+CREATE INDEX idx_comments_post_created ON comments(post_id, created_at DESC, id DESC);
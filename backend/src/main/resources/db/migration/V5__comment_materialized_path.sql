@@ -0,0 +1,24 @@
+-- ═══════════════════════════════════════════════════════════════
+-- Reddit Clone — Materialized path for comment subtrees
+-- ═══════════════════════════════════════════════════════════════
+
+-- Zero-padded ancestor ids, e.g. '000000000012/000000000034/'. The "C" collation
+-- keeps byte ordering so a subtree is the range [path, path || '~').
+ALTER TABLE comments ADD COLUMN path TEXT COLLATE "C";
+
+WITH RECURSIVE tree AS (
+    SELECT id, LPAD(id::text, 12, '0') || '/' AS path
+    FROM comments
+    WHERE parent_id IS NULL
+    UNION ALL
+    SELECT c.id, t.path || LPAD(c.id::text, 12, '0') || '/'
+    FROM comments c
+    JOIN tree t ON c.parent_id = t.id
+)
+UPDATE comments
+SET path = tree.path
+FROM tree
+WHERE comments.id = tree.id;
+
+-- ─── Indexes ────────────────────────────────────────────────
+CREATE INDEX idx_comments_path ON comments(path);
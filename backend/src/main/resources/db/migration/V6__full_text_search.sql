@@ -0,0 +1,19 @@
+-- ═══════════════════════════════════════════════════════════════
+-- Reddit Clone — Full-text search vectors for posts and subreddits
+-- ═══════════════════════════════════════════════════════════════
+
+-- Generated columns fill in for existing rows and stay current on every write.
+-- Titles and names rank above bodies and descriptions.
+ALTER TABLE posts ADD COLUMN search_vector TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', COALESCE(title, '')), 'A') ||
+    setweight(to_tsvector('english', COALESCE(content, '')), 'B')
+) STORED;
+
+ALTER TABLE subreddits ADD COLUMN search_vector TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', COALESCE(name, '')), 'A') ||
+    setweight(to_tsvector('english', COALESCE(description, '')), 'B')
+) STORED;
+
+-- ─── Indexes ────────────────────────────────────────────────
+CREATE INDEX idx_posts_search_vector ON posts USING GIN (search_vector);
+CREATE INDEX idx_subreddits_search_vector ON subreddits USING GIN (search_vector);
@@ -0,0 +1,25 @@
+-- ═══════════════════════════════════════════════════════════════
+-- Reddit Clone — Separate post and comment karma
+-- ═══════════════════════════════════════════════════════════════
+
+-- karma stays the total; both parts are maintained by KarmaLedger
+ALTER TABLE users ADD COLUMN post_karma INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN comment_karma INTEGER NOT NULL DEFAULT 0;
+
+UPDATE users u
+SET post_karma = t.total
+FROM (
+    SELECT p.author_id, SUM(v.vote_type) AS total
+    FROM votes v JOIN posts p ON p.id = v.post_id
+    GROUP BY p.author_id
+) t
+WHERE u.id = t.author_id;
+
+UPDATE users u
+SET comment_karma = t.total
+FROM (
+    SELECT c.author_id, SUM(v.vote_type) AS total
+    FROM votes v JOIN comments c ON c.id = v.comment_id
+    GROUP BY c.author_id
+) t
+WHERE u.id = t.author_id;
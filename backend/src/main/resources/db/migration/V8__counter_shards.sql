@@ -0,0 +1,14 @@
+-- ═══════════════════════════════════════════════════════════════
+-- Reddit Clone — Shard rows for hot counters
+-- ═══════════════════════════════════════════════════════════════
+
+-- Increments on hot entities are spread over these rows and folded back
+-- into the owning column (posts.comment_count, subreddits.member_count)
+-- once the entity cools off. See ShardedCounters.
+CREATE TABLE counter_shards (
+    counter         VARCHAR(32) NOT NULL,
+    entity_id       BIGINT NOT NULL,
+    shard           SMALLINT NOT NULL,
+    delta           BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (counter, entity_id, shard)
+);
@@ -0,0 +1,10 @@
+-- ═══════════════════════════════════════════════════════════════
+-- Reddit Clone — Store refresh tokens as SHA-256 hashes
+-- ═══════════════════════════════════════════════════════════════
+
+-- Existing tokens keep working: clients still present the raw value,
+-- which RefreshTokenStore hashes before lookup
+UPDATE refresh_tokens SET token = encode(sha256(convert_to(token, 'UTF8')), 'hex');
+
+-- ─── Indexes ────────────────────────────────────────────────
+CREATE INDEX idx_refresh_tokens_expiry ON refresh_tokens(expiry_date);
@@ -0,0 +1,89 @@
+package com.redditclone.security;
+
+import com.redditclone.model.Role;
+import com.redditclone.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput of token verification on a working set of live tokens, as the
+ * authentication filter sees it. Compares the original per-call verification
+ * (key decoded and parser built on every request) against a prebuilt parser
+ * and against {@link JwtTokenProvider#parseClaims} with its verified-token cache.
+ *
+ * <p>Skipped by default; run with
+ * {@code mvn test -Dtest=JwtTokenProviderBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JwtTokenProviderBenchmark {
+
+    private static final String SECRET = "YTJiM2M0ZDVlNmY3ZzhoOWkwajFrMmwzbTRuNW82cDdxOHI5czB0MXUydjN3NHg1eTZ6";
+    private static final int TOKENS = 1_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int CALLS_PER_ROUND = 200_000;
+
+    // Consumed results, so the JIT cannot drop the work being measured
+    private long sink;
+
+    @Test
+    void parseClaims() {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 3_600_000, 10_000);
+        List<String> tokens = new ArrayList<>(TOKENS);
+        for (long id = 1; id <= TOKENS; id++) {
+            tokens.add(provider.generateAccessToken(User.builder()
+                    .id(id)
+                    .username("user" + id)
+                    .roles(Set.of(Role.builder().name("ROLE_USER").build()))
+                    .build()));
+        }
+
+        double perCall = opsPerSecond(tokens, JwtTokenProviderBenchmark::parseBaseline);
+        var parser = Jwts.parser().verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET))).build();
+        double prebuilt = opsPerSecond(tokens, token -> parser.parseSignedClaims(token).getPayload());
+        double cached = opsPerSecond(tokens, token -> provider.parseClaims(token).orElseThrow());
+
+        System.out.printf("parseClaims over %d live tokens (ops/s, best of %d rounds of %d calls)%n",
+                TOKENS, MEASURED_ROUNDS, CALLS_PER_ROUND);
+        System.out.printf("  baseline, key and parser per call: %,12.0f%n", perCall);
+        System.out.printf("  prebuilt parser, no cache:         %,12.0f  (%.1fx)%n", prebuilt, prebuilt / perCall);
+        System.out.printf("  prebuilt parser + verified cache:  %,12.0f  (%.1fx)%n", cached, cached / perCall);
+        assertThat(sink).isNotZero();
+        assertThat(cached).isGreaterThan(perCall);
+    }
+
+    // parseClaims as it was before the parser and cache were introduced
+    private static Claims parseBaseline(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private double opsPerSecond(List<String> tokens, Function<String, Claims> parse) {
+        double best = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < CALLS_PER_ROUND; i++) {
+                sink += parse.apply(tokens.get(i % tokens.size())).getSubject().length();
+            }
+            double opsPerSecond = CALLS_PER_ROUND / ((System.nanoTime() - start) / 1e9);
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.max(best, opsPerSecond);
+            }
+        }
+        return best;
+    }
+}
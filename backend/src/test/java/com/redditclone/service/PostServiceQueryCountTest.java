@@ -0,0 +1,203 @@
+package com.redditclone.service;
+
+import com.redditclone.cache.SingleFlightLoader;
+import com.redditclone.dto.CursorPage;
+import com.redditclone.dto.PostDto;
+import com.redditclone.model.Post;
+import com.redditclone.model.Subreddit;
+import com.redditclone.model.User;
+import com.redditclone.model.Vote;
+import com.redditclone.repository.PostRepository;
+import com.redditclone.repository.SubredditRepository;
+import com.redditclone.repository.VoteRepository;
+import com.redditclone.security.CurrentUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A feed page must cost a fixed number of statements however many posts and
+ * authors it holds: the viewer's votes, the authors and the shard totals are
+ * each resolved for the whole page at once. Statements are counted at the
+ * connection, so JdbcTemplate reads count alongside Hibernate's.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class PostServiceQueryCountTest {
+
+    // Posts page, subreddit, authors (batch-fetched), viewer votes, shard totals
+    private static final long FEED_PAGE_STATEMENTS = 5;
+
+    private static final AtomicLong statements = new AtomicLong();
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @TestConfiguration
+    static class StatementCounting {
+
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private SubredditRepository subredditRepository;
+
+    @Autowired
+    private VoteRepository voteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final CurrentUser currentUser = mock(CurrentUser.class);
+
+    private ShardedCounters shardedCounters;
+    private PostService postService;
+
+    @BeforeEach
+    void setUp() {
+        // Only the database path is under test; caches are bypassed and the ranking never answers
+        FeedRanking feedRanking = mock(FeedRanking.class);
+        when(feedRanking.window(any(), any(), any(), anyInt())).thenReturn(Optional.empty());
+        shardedCounters = new ShardedCounters(jdbcTemplate, transactionManager, 4, 1000, 5000);
+        postService = new PostService(postRepository, subredditRepository, voteRepository, currentUser,
+                mock(ApplicationEventPublisher.class), mock(VoteAggregator.class), shardedCounters,
+                mock(CacheManager.class), mock(SingleFlightLoader.class), feedRanking);
+    }
+
+    @Test
+    void feedPageRunsAFixedNumberOfStatements() {
+        User viewer = persistUser("viewer");
+        List<User> authors = List.of(persistUser("alice"), persistUser("bob"), persistUser("carol"),
+                persistUser("dave"), persistUser("erin"));
+        Subreddit subreddit = entityManager.persist(Subreddit.builder()
+                .name("busy")
+                .creator(authors.get(0))
+                .build());
+        Post hot = null;
+        for (int i = 0; i < 15; i++) {
+            hot = persistVotedPost(subreddit, authors.get(i % authors.size()), viewer, "post " + i);
+        }
+        entityManager.flush();
+        jdbcTemplate.update("INSERT INTO counter_shards (counter, entity_id, shard, delta) VALUES (?, ?, ?, ?)",
+                ShardedCounters.Counter.POST_COMMENTS.name(), hot.getId(), 0, 3);
+        shardedCounters.refreshSharded();
+        when(currentUser.getUserId()).thenReturn(viewer.getId());
+        entityManager.clear();
+        statements.set(0);
+
+        CursorPage<PostDto.Response> page = postService.getBySubreddit(subreddit.getId(), "new", null, 20);
+
+        assertThat(statements.get()).isEqualTo(FEED_PAGE_STATEMENTS);
+        assertThat(page.getContent()).hasSize(15)
+                .allSatisfy(post -> assertThat(post.getUserVote()).isEqualTo(1));
+        assertThat(page.getContent()).extracting(PostDto.Response::getAuthorUsername)
+                .containsOnly("alice", "bob", "carol", "dave", "erin");
+        Long hotId = hot.getId();
+        assertThat(page.getContent()).filteredOn(post -> post.getId().equals(hotId))
+                .singleElement()
+                .satisfies(post -> assertThat(post.getCommentCount()).isEqualTo(3));
+    }
+
+    private Post persistVotedPost(Subreddit subreddit, User author, User viewer, String title) {
+        Post post = entityManager.persist(Post.builder()
+                .title(title)
+                .subreddit(subreddit)
+                .author(author)
+                .build());
+        entityManager.persist(Vote.builder()
+                .voteType((short) 1)
+                .user(viewer)
+                .post(post)
+                .build());
+        return post;
+    }
+
+    private User persistUser(String username) {
+        return entityManager.persist(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("not-a-hash")
+                .build());
+    }
+
+    // Counts every statement prepared or created on connections it hands out
+    private static class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+
+        private static Connection counting(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                            statements.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getCause();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.redditclone.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The ranking scripts and paging against a real Redis. Sets are seeded
+ * directly or through the event listeners; rebuilds are not run, so the
+ * database is never read.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RedisFeedRankingTest {
+
+    private static final String COMPLETE_KEY = "{feed}:complete";
+    private static final long SUBREDDIT = 10;
+
+    @Container
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private RedisFeedRanking ranking;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redis.getHost(), redis.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+        ranking = new RedisFeedRanking(redisTemplate, mock(JdbcTemplate.class), mock(VoteAggregator.class),
+                100, 60_000);
+    }
+
+    @Test
+    void windowPagesThroughEqualScoresWithoutSkipsOrRepeats() {
+        redisTemplate.opsForHash().putAll(COMPLETE_KEY, Map.of("built", "1", "{feed}:all:top", "1"));
+        double[] scores = {5, 5, 5, 5, 3, 3, 1};
+        for (int i = 0; i < scores.length; i++) {
+            redisTemplate.opsForZSet().add("{feed}:all:top", String.format("%019d", i + 1), scores[i]);
+        }
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            FeedRanking.Window window = ranking.window(null, "top", cursor, 2).orElseThrow();
+            for (long id : window.ids()) {
+                paged.add(id);
+            }
+            cursor = window.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Score descending, then id descending, as the keyset queries order them
+        assertThat(paged).containsExactly(4L, 3L, 2L, 1L, 6L, 5L, 7L);
+        assertThat(pages).isEqualTo(4);
+    }
+
+    @Test
+    void eventsMaintainTheGlobalAndSubredditSets() {
+        markComplete("all", String.valueOf(SUBREDDIT));
+        LocalDateTime now = LocalDateTime.now();
+        ranking.onPostAdded(new FeedRanking.PostAdded(1L, SUBREDDIT, now));
+        ranking.onPostAdded(new FeedRanking.PostAdded(2L, SUBREDDIT, now.minusHours(1)));
+
+        ranking.onVote(new VoteAggregator.VoteDelta(2L, null, 3, 1));
+
+        assertThat(ids(SUBREDDIT, "new")).containsExactly(1L, 2L);
+        assertThat(ids(SUBREDDIT, "top")).containsExactly(2L, 1L);
+        assertThat(ids(null, "top")).containsExactly(2L, 1L);
+        assertThat(redisTemplate.opsForHash().get("{feed}:votes", String.format("%019d", 2))).isEqualTo("3");
+
+        ranking.onPostRemoved(new FeedRanking.PostRemoved(2L, SUBREDDIT));
+
+        assertThat(ids(SUBREDDIT, "top")).containsExactly(1L);
+        assertThat(ids(null, "hot")).containsExactly(1L);
+        assertThat(redisTemplate.opsForHash().hasKey("{feed}:posts", String.format("%019d", 2))).isFalse();
+    }
+
+    @Test
+    void aSetCreatedByAnEventIsNotMarkedComplete() {
+        redisTemplate.opsForHash().put(COMPLETE_KEY, "built", "1");
+
+        ranking.onPostAdded(new FeedRanking.PostAdded(1L, SUBREDDIT, LocalDateTime.now()));
+
+        assertThat(redisTemplate.opsForZSet().size("{feed}:" + SUBREDDIT + ":new")).isEqualTo(1);
+        assertThat(redisTemplate.opsForHash().hasKey(COMPLETE_KEY, "{feed}:" + SUBREDDIT + ":new")).isFalse();
+        assertThat(ranking.window(SUBREDDIT, "new", null, 20)).isEmpty();
+    }
+
+    @Test
+    void aVoteOnAPostOutsideTheSetsIsTrackedDuringARebuild() {
+        redisTemplate.opsForHash().put(COMPLETE_KEY, "built", "1");
+        redisTemplate.opsForValue().set("{feed}:rebuilding", "1");
+
+        ranking.onVote(new VoteAggregator.VoteDelta(7L, null, 1, 1));
+
+        assertThat(redisTemplate.opsForSet().members("{feed}:touched")).containsExactly(String.format("%019d", 7));
+        assertThat(redisTemplate.opsForHash().hasKey("{feed}:votes", String.format("%019d", 7))).isFalse();
+    }
+
+    private void markComplete(String... scopes) {
+        redisTemplate.opsForHash().put(COMPLETE_KEY, "built", "1");
+        for (String scope : scopes) {
+            for (String sort : List.of("hot", "new", "top")) {
+                redisTemplate.opsForHash().put(COMPLETE_KEY, "{feed}:" + scope + ":" + sort, "1");
+            }
+        }
+    }
+
+    private List<Long> ids(Long subredditId, String sort) {
+        List<Long> ids = new ArrayList<>();
+        for (long id : ranking.window(subredditId, sort, null, 20).orElseThrow().ids()) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
@@ -4,18 +4,36 @@ import api from '../api'
 
 export const useCommentStore = defineStore('comment', () => {
   const comments = ref([])
+  const continuationToken = ref(null)
+  const hiddenCount = ref(0)
   const loading = ref(false)
 
   async function fetchByPost(postId) {
     loading.value = true
     try {
       const { data } = await api.get(`/posts/${postId}/comments`)
-      comments.value = data
+      comments.value = data.comments
+      continuationToken.value = data.continuationToken || null
+      hiddenCount.value = data.hiddenCount || 0
     } finally {
       loading.value = false
     }
   }
 
+  // Expands a truncated branch; parent is null for more top-level comments
+  async function loadMore(postId, token, parent = null) {
+    const { data } = await api.get(`/posts/${postId}/comments/more`, { params: { token } })
+    if (parent) {
+      parent.children = [...(parent.children || []), ...data.comments]
+      parent.continuationToken = data.continuationToken || null
+      parent.hiddenReplyCount = data.hiddenCount || 0
+    } else {
+      comments.value = [...comments.value, ...data.comments]
+      continuationToken.value = data.continuationToken || null
+      hiddenCount.value = data.hiddenCount || 0
+    }
+  }
+
   async function create(postId, content, parentId = null) {
     const { data } = await api.post(`/posts/${postId}/comments`, { content, parentId })
     if (parentId) {
@@ -56,5 +74,5 @@ export const useCommentStore = defineStore('comment', () => {
     return false
   }
 
-  return { comments, loading, fetchByPost, create, voteComment }
+  return { comments, continuationToken, hiddenCount, loading, fetchByPost, loadMore, create, voteComment }
 })
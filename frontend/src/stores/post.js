@@ -7,12 +7,12 @@ export const usePostStore = defineStore('post', () => {
   const currentPost = ref(null)
   const loading = ref(false)
   const hasMore = ref(true)
-  const page = ref(0)
+  const cursor = ref(null)
   const sort = ref('hot')
 
   async function fetchFeed(sortBy = 'hot', reset = false) {
     if (reset) {
-      page.value = 0
+      cursor.value = null
       posts.value = []
       hasMore.value = true
     }
@@ -20,11 +20,11 @@ export const usePostStore = defineStore('post', () => {
     loading.value = true
     try {
       const { data } = await api.get('/posts', {
-        params: { sort: sortBy, page: page.value, size: 20 }
+        params: { sort: sortBy, cursor: cursor.value, size: 20 }
       })
-      if (data.content.length < 20) hasMore.value = false
+      hasMore.value = data.hasNext
       posts.value = reset ? data.content : [...posts.value, ...data.content]
-      page.value++
+      cursor.value = data.nextCursor
     } finally {
       loading.value = false
     }
@@ -32,7 +32,7 @@ export const usePostStore = defineStore('post', () => {
 
   async function fetchBySubreddit(subredditId, sortBy = 'hot', reset = false) {
     if (reset) {
-      page.value = 0
+      cursor.value = null
       posts.value = []
       hasMore.value = true
     }
@@ -40,11 +40,11 @@ export const usePostStore = defineStore('post', () => {
     loading.value = true
     try {
       const { data } = await api.get(`/posts/subreddit/${subredditId}`, {
-        params: { sort: sortBy, page: page.value, size: 20 }
+        params: { sort: sortBy, cursor: cursor.value, size: 20 }
       })
-      if (data.content.length < 20) hasMore.value = false
+      hasMore.value = data.hasNext
       posts.value = reset ? data.content : [...posts.value, ...data.content]
-      page.value++
+      cursor.value = data.nextCursor
     } finally {
       loading.value = false
     }
@@ -87,5 +87,5 @@ export const usePostStore = defineStore('post', () => {
     return data
   }
 
-  return { posts, currentPost, loading, hasMore, page, sort, fetchFeed, fetchBySubreddit, fetchPost, createPost, deletePost, vote }
+  return { posts, currentPost, loading, hasMore, cursor, sort, fetchFeed, fetchBySubreddit, fetchPost, createPost, deletePost, vote }
 })